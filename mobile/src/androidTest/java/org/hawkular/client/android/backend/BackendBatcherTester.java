@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.Metric;
+import org.hawkular.client.android.backend.model.MetricConfiguration;
+import org.hawkular.client.android.backend.model.MetricProperties;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.backend.model.MetricType;
+import org.hawkular.client.android.util.Urls;
+import org.jboss.aerogear.android.pipe.module.PipeModule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class BackendBatcherTester {
+    @Test
+    public void types() throws IOException {
+        List<Metric> metrics = Arrays.asList(
+                getMetric("uptime", MetricType.AVAILABILITY),
+                getMetric("memory", MetricType.GAUGE),
+                getMetric("requests", MetricType.COUNTER));
+
+        List<MetricSeries> series = getBatcher().readSeries(metrics, getBytes("{"
+                + "\"gauge\": {\"memory\": [{\"start\": 0, \"end\": 10, \"avg\": 2, \"min\": 1, \"max\": 3,"
+                + " \"percentiles\": [{\"quantile\": 95, \"value\": 2.5}], \"empty\": false}]},"
+                + "\"availability\": {\"uptime\": [{\"start\": 0, \"end\": 10, \"uptimeRatio\": 0.5,"
+                + " \"empty\": false}]},"
+                + "\"counter\": {\"requests\": [{\"start\": 0, \"end\": 10, \"avg\": 7, \"empty\": false}]}"
+                + "}"));
+
+        Assertions.assertThat(series).hasSize(3);
+
+        Assertions.assertThat(series.get(0).getValue(0)).isEqualTo(0.5);
+        Assertions.assertThat(series.get(1).getValue(0)).isEqualTo(2);
+        Assertions.assertThat(series.get(1).getMinimum(0)).isEqualTo(1);
+        Assertions.assertThat(series.get(1).getMaximum(0)).isEqualTo(3);
+        Assertions.assertThat(series.get(1).getPercentile(0)).isEqualTo(2.5);
+        Assertions.assertThat(series.get(2).getValue(0)).isEqualTo(7);
+    }
+
+    @Test
+    public void missing() throws IOException {
+        List<Metric> metrics = Arrays.asList(
+                getMetric("memory", MetricType.GAUGE),
+                getMetric("threads", MetricType.GAUGE),
+                getMetric("requests", MetricType.COUNTER));
+
+        List<MetricSeries> series = getBatcher().readSeries(metrics, getBytes("{"
+                + "\"gauge\": {\"memory\": [{\"start\": 0, \"end\": 10, \"avg\": 2, \"empty\": false}]}"
+                + "}"));
+
+        Assertions.assertThat(series).hasSize(3);
+
+        Assertions.assertThat(series.get(0).size()).isEqualTo(1);
+        Assertions.assertThat(series.get(1).size()).isEqualTo(0);
+        Assertions.assertThat(series.get(2).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void identifiers() throws IOException {
+        List<Metric> metrics = Arrays.asList(
+                getMetric("metric", MetricType.GAUGE),
+                getMetric("metric", MetricType.COUNTER));
+
+        List<MetricSeries> series = getBatcher().readSeries(metrics, getBytes("{"
+                + "\"counter\": {\"metric\": [{\"start\": 0, \"end\": 10, \"avg\": 7, \"empty\": false}]}"
+                + "}"));
+
+        Assertions.assertThat(series.get(0).size()).isEqualTo(0);
+        Assertions.assertThat(series.get(1).getValue(0)).isEqualTo(7);
+    }
+
+    @Test
+    public void empty() throws IOException {
+        List<Metric> metrics = Collections.singletonList(getMetric("memory", MetricType.GAUGE));
+
+        Assertions.assertThat(getBatcher().readSeries(metrics, new byte[0]).get(0).size()).isEqualTo(0);
+        Assertions.assertThat(getBatcher().readSeries(metrics, getBytes("{}")).get(0).size()).isEqualTo(0);
+        Assertions.assertThat(getBatcher().readSeries(metrics, getBytes("{\"gauge\": {\"memory\": []}}"))
+                .get(0).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void emptyBuckets() throws IOException {
+        List<Metric> metrics = Collections.singletonList(getMetric("memory", MetricType.GAUGE));
+
+        MetricSeries series = getBatcher().readSeries(metrics, getBytes("{"
+                + "\"gauge\": {\"memory\": [{\"start\": 0, \"end\": 10, \"avg\": NaN, \"min\": NaN, \"max\": NaN,"
+                + " \"empty\": true}, {\"start\": 10, \"end\": 20, \"avg\": 2, \"empty\": false}]}"
+                + "}")).get(0);
+
+        Assertions.assertThat(series.size()).isEqualTo(2);
+        Assertions.assertThat(series.isEmpty(0)).isTrue();
+        Assertions.assertThat(series.getMinimum(0)).isNaN();
+        Assertions.assertThat(series.isEmpty(1)).isFalse();
+        Assertions.assertThat(series.getPercentile(1)).isNaN();
+    }
+
+    private BackendBatcher getBatcher() {
+        return new BackendBatcher(new BackendRunner<MetricSeries>(
+                Urls.getUrl("localhost"), Collections.<PipeModule>emptyList(), null));
+    }
+
+    private Metric getMetric(String id, MetricType type) {
+        return new Metric(id, new MetricProperties(id), new MetricConfiguration(type));
+    }
+
+    private byte[] getBytes(String body) throws IOException {
+        return body.getBytes("UTF-8");
+    }
+}
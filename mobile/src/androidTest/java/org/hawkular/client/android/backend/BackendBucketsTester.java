@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Pair;
+
+@RunWith(AndroidJUnit4.class)
+public final class BackendBucketsTester {
+    @Test
+    public void missing() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+
+        Assertions.assertThat(series.isEmpty()).isTrue();
+        Assertions.assertThat(series.getMissingRanges(0, 100)).containsExactly(Pair.create(0L, 100L));
+    }
+
+    @Test
+    public void disjoint() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+        series.put(0, 20, getBuckets(0, 20, 1));
+        series.put(40, 60, getBuckets(40, 60, 1));
+
+        Assertions.assertThat(series.getRanges()).containsExactly(
+                Pair.create(0L, 20L), Pair.create(40L, 60L));
+        Assertions.assertThat(series.getMissingRanges(0, 80)).containsExactly(
+                Pair.create(20L, 40L), Pair.create(60L, 80L));
+        Assertions.assertThat(series.getMissingRanges(10, 50)).containsExactly(
+                Pair.create(20L, 40L));
+        Assertions.assertThat(series.getMissingRanges(40, 60)).isEmpty();
+
+        Assertions.assertThat(series.get(0, 80).size()).isEqualTo(4);
+    }
+
+    @Test
+    public void overlapping() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+        series.put(0, 30, getBuckets(0, 30, 1));
+        series.put(20, 50, getBuckets(20, 50, 2));
+
+        Assertions.assertThat(series.getRanges()).containsExactly(Pair.create(0L, 50L));
+        Assertions.assertThat(series.getMissingRanges(0, 50)).isEmpty();
+
+        MetricSeries buckets = series.get(0, 50);
+
+        Assertions.assertThat(buckets.size()).isEqualTo(5);
+        Assertions.assertThat(buckets.getValue(1)).isEqualTo(1);
+        Assertions.assertThat(buckets.getValue(2)).isEqualTo(2);
+        Assertions.assertThat(buckets.getValue(4)).isEqualTo(2);
+    }
+
+    @Test
+    public void touching() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+        series.put(0, 20, getBuckets(0, 20, 1));
+        series.put(40, 60, getBuckets(40, 60, 1));
+        series.put(20, 40, getBuckets(20, 40, 2));
+
+        Assertions.assertThat(series.getRanges()).containsExactly(Pair.create(0L, 60L));
+        Assertions.assertThat(series.get(0, 60).size()).isEqualTo(6);
+    }
+
+    @Test
+    public void covering() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+        series.put(10, 20, getBuckets(10, 20, 1));
+        series.put(40, 50, getBuckets(40, 50, 1));
+        series.put(0, 60, getBuckets(0, 60, 2));
+
+        Assertions.assertThat(series.getRanges()).containsExactly(Pair.create(0L, 60L));
+
+        MetricSeries buckets = series.get(0, 60);
+
+        Assertions.assertThat(buckets.size()).isEqualTo(6);
+        Assertions.assertThat(buckets.getValue(1)).isEqualTo(2);
+    }
+
+    @Test
+    public void trimming() {
+        BackendBuckets.Series series = new BackendBuckets.Series();
+        series.put(0, 10000, getBuckets(0, 10000, 1));
+        series.put(10000, 20010, getBuckets(10000, 20010, 2));
+
+        MetricSeries buckets = series.get(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        Assertions.assertThat(buckets.size()).isEqualTo(1024);
+        Assertions.assertThat(buckets.getStartTimestamp(buckets.size() - 1)).isEqualTo(20000);
+        Assertions.assertThat(series.getRanges()).containsExactly(Pair.create(9770L, 20010L));
+    }
+
+    @Test
+    public void writing() throws IOException {
+        BackendBuckets.Series originalSeries = new BackendBuckets.Series();
+        originalSeries.put(0, 20, getBuckets(0, 20, 1));
+        originalSeries.put(40, 60, getBuckets(40, 60, Double.NaN));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        originalSeries.write(new DataOutputStream(output), "key");
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        input.readInt();
+
+        Assertions.assertThat(input.readUTF()).isEqualTo("key");
+
+        BackendBuckets.Series readSeries = new BackendBuckets.Series();
+        readSeries.read(input);
+
+        Assertions.assertThat(readSeries.getRanges()).isEqualTo(originalSeries.getRanges());
+
+        MetricSeries originalBuckets = originalSeries.get(0, 60);
+        MetricSeries readBuckets = readSeries.get(0, 60);
+
+        Assertions.assertThat(readBuckets.size()).isEqualTo(originalBuckets.size());
+
+        for (int bucket = 0; bucket < originalBuckets.size(); bucket++) {
+            Assertions.assertThat(readBuckets.getStartTimestamp(bucket))
+                    .isEqualTo(originalBuckets.getStartTimestamp(bucket));
+            Assertions.assertThat(readBuckets.getValue(bucket)).isEqualTo(originalBuckets.getValue(bucket));
+            Assertions.assertThat(readBuckets.isEmpty(bucket)).isEqualTo(originalBuckets.isEmpty(bucket));
+        }
+    }
+
+    private MetricSeries getBuckets(long startTime, long finishTime, double value) {
+        MetricSeries.Builder bucketsBuilder = new MetricSeries.Builder();
+
+        for (long bucketTime = startTime; bucketTime < finishTime; bucketTime += 10) {
+            bucketsBuilder.add(bucketTime, bucketTime + 10, value, Double.isNaN(value));
+        }
+
+        return bucketsBuilder.build();
+    }
+}
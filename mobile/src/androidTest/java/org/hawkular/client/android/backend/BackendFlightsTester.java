@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class BackendFlightsTester {
+    private static final class Read implements Callable<String> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public String call() throws Exception {
+            calls.incrementAndGet();
+
+            started.countDown();
+            released.await();
+
+            return "result";
+        }
+    }
+
+    @Test
+    public void coalescing() throws Exception {
+        final BackendFlights<String> flights = new BackendFlights<>();
+        final Read read = new Read();
+        final AtomicReference<Thread> secondThread = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> firstResult = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return flights.execute("key", read);
+                }
+            });
+
+            read.started.await();
+
+            Future<String> secondResult = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    secondThread.set(Thread.currentThread());
+
+                    return flights.execute("key", read);
+                }
+            });
+
+            // The second read has to join the first one before it is finished.
+            while ((secondThread.get() == null) || (secondThread.get().getState() != Thread.State.WAITING)) {
+                Thread.yield();
+            }
+
+            read.released.countDown();
+
+            Assertions.assertThat(firstResult.get()).isEqualTo("result");
+            Assertions.assertThat(secondResult.get()).isEqualTo("result");
+            Assertions.assertThat(read.calls.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sequential() {
+        BackendFlights<String> flights = new BackendFlights<>();
+        Read read = new Read();
+        read.released.countDown();
+
+        flights.execute("key", read);
+        flights.execute("key", read);
+
+        Assertions.assertThat(read.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void keys() {
+        BackendFlights<String> flights = new BackendFlights<>();
+        Read read = new Read();
+        read.released.countDown();
+
+        flights.execute("first key", read);
+        flights.execute("second key", read);
+
+        Assertions.assertThat(read.calls.get()).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failure() {
+        new BackendFlights<String>().execute("key", new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException();
+            }
+        });
+    }
+}
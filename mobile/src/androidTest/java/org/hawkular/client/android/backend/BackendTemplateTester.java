@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.util.CanonicalPath;
+import org.hawkular.client.android.util.Uris;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class BackendTemplateTester {
+    private static final String RESOURCE = "/t;tenant/e;environment/f;feed/r;server/r;datasource";
+    private static final String RESOURCE_TYPE = "/t;tenant/f;feed/rt;type";
+    private static final String METRIC = "MI~R~[feed/server~Local~/]~MT~WildFly Memory Metrics~Heap Used";
+
+    @Test
+    public void plain() {
+        Assertions.assertThat(BackendPipes.Templates.TRIGGERS.expand().build())
+                .isEqualTo(Uris.getUri(BackendPipes.Paths.TRIGGERS));
+        Assertions.assertThat(BackendPipes.Templates.FEEDS.expand().build())
+                .isEqualTo(Uris.getUri(BackendPipes.Paths.FEEDS));
+    }
+
+    @Test
+    public void inventory() {
+        CanonicalPath resource = CanonicalPath.getByString(RESOURCE);
+        CanonicalPath resourceType = CanonicalPath.getByString(RESOURCE_TYPE);
+
+        Assertions.assertThat(BackendPipes.Templates.METRICS.expand(resource).build())
+                .isEqualTo(Uris.getUri(resource.fix(BackendPipes.Paths.METRICS)));
+        Assertions.assertThat(BackendPipes.Templates.FEED_CHILD_RESOURCES.expand(resource).build())
+                .isEqualTo(Uris.getUri(resource.fix(BackendPipes.Paths.FEED_CHILD_RESOURCES)));
+        Assertions.assertThat(BackendPipes.Templates.FEED_RESOURCES.expand(resource).build())
+                .isEqualTo(Uris.getUri(resource.fix(BackendPipes.Paths.FEED_RESOURCES)));
+        Assertions.assertThat(BackendPipes.Templates.OPERATIONS.expand(resourceType).build())
+                .isEqualTo(Uris.getUri(resourceType.fix(BackendPipes.Paths.OPERATIONS)));
+    }
+
+    @Test
+    public void metric() {
+        URI uri = BackendPipes.Templates.METRIC_DATA_GAUGE.expand(METRIC)
+                .parameter(BackendPipes.Parameters.START, 1000)
+                .parameter(BackendPipes.Parameters.FINISH, 2000)
+                .parameter(BackendPipes.Parameters.BUCKETS, 60)
+                .build();
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put(BackendPipes.Parameters.START, "1000");
+        parameters.put(BackendPipes.Parameters.FINISH, "2000");
+        parameters.put(BackendPipes.Parameters.BUCKETS, "60");
+
+        Assertions.assertThat(uri).isEqualTo(Uris.getUri(BackendPipes.Paths.METRIC_DATA_GAUGE.replace(
+                "{id}", Uris.getEncodedParameter(METRIC)), parameters));
+    }
+
+    @Test
+    public void parameters() {
+        URI uri = BackendPipes.Templates.ALERTS.expand()
+                .parameter(BackendPipes.Parameters.TRIGGERS, Arrays.asList("first trigger", "second&trigger"))
+                .build();
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put(BackendPipes.Parameters.TRIGGERS,
+                Uris.getParameter(Arrays.asList("first trigger", "second&trigger")));
+
+        Assertions.assertThat(uri).isEqualTo(Uris.getUri(BackendPipes.Paths.ALERTS, parameters));
+    }
+
+    @Test
+    public void reusing() {
+        BackendPipes.Templates.METRIC_DATA_GAUGE.expand(METRIC)
+                .parameter(BackendPipes.Parameters.START, 1000)
+                .build();
+
+        Assertions.assertThat(BackendPipes.Templates.TRIGGERS.expand().build())
+                .isEqualTo(Uris.getUri(BackendPipes.Paths.TRIGGERS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void placeholders() {
+        BackendPipes.Templates.METRICS.expand();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void identifier() {
+        BackendPipes.Templates.TRIGGERS.expand(METRIC);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend.model;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.util.Parceler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class MetricSeriesTester {
+    @Test
+    public void sorting() {
+        MetricSeries series = new MetricSeries.Builder()
+                .add(20, 30, 2, false)
+                .add(0, 10, 0, true)
+                .add(10, 20, 1, false)
+                .build();
+
+        Assertions.assertThat(series.size()).isEqualTo(3);
+
+        for (int bucket = 0; bucket < series.size(); bucket++) {
+            Assertions.assertThat(series.getStartTimestamp(bucket)).isEqualTo(bucket * 10);
+            Assertions.assertThat(series.getEndTimestamp(bucket)).isEqualTo(bucket * 10 + 10);
+            Assertions.assertThat(series.getValue(bucket)).isEqualTo(bucket);
+        }
+
+        Assertions.assertThat(series.isEmpty(0)).isTrue();
+        Assertions.assertThat(series.isEmpty(1)).isFalse();
+    }
+
+    @Test
+    public void growing() {
+        MetricSeries.Builder seriesBuilder = new MetricSeries.Builder(1);
+
+        for (int bucket = 0; bucket < 100; bucket++) {
+            seriesBuilder.add(bucket, bucket + 1, bucket, bucket % 2 == 0);
+        }
+
+        MetricSeries series = seriesBuilder.build();
+
+        Assertions.assertThat(series.size()).isEqualTo(100);
+        Assertions.assertThat(series.getValue(99)).isEqualTo(99);
+        Assertions.assertThat(series.isEmpty(98)).isTrue();
+        Assertions.assertThat(series.isEmpty(99)).isFalse();
+    }
+
+    @Test
+    public void merging() {
+        MetricSeries series = new MetricSeries.Builder()
+                .add(0, 10, 0, false)
+                .add(10, 20, 0, false)
+                .add(20, 30, 0, false)
+                .build();
+
+        MetricSeries mergeSeries = new MetricSeries.Builder()
+                .add(10, 15, 1, false)
+                .add(15, 20, 1, false)
+                .build();
+
+        MetricSeries mergedSeries = series.merge(mergeSeries);
+
+        Assertions.assertThat(mergedSeries.size()).isEqualTo(4);
+        Assertions.assertThat(mergedSeries.getStartTimestamp(0)).isEqualTo(0);
+        Assertions.assertThat(mergedSeries.getStartTimestamp(1)).isEqualTo(10);
+        Assertions.assertThat(mergedSeries.getStartTimestamp(2)).isEqualTo(15);
+        Assertions.assertThat(mergedSeries.getStartTimestamp(3)).isEqualTo(20);
+        Assertions.assertThat(mergedSeries.getValue(2)).isEqualTo(1);
+    }
+
+    @Test
+    public void parcelable() {
+        MetricSeries originalSeries = new MetricSeries.Builder()
+                .add(0, 10, Double.NaN, true)
+                .add(10, 20, 1, false)
+                .build();
+        MetricSeries parceledSeries = Parceler.parcel(MetricSeries.CREATOR, originalSeries);
+
+        Assertions.assertThat(parceledSeries.size()).isEqualTo(originalSeries.size());
+
+        for (int bucket = 0; bucket < originalSeries.size(); bucket++) {
+            Assertions.assertThat(parceledSeries.getStartTimestamp(bucket))
+                    .isEqualTo(originalSeries.getStartTimestamp(bucket));
+            Assertions.assertThat(parceledSeries.getEndTimestamp(bucket))
+                    .isEqualTo(originalSeries.getEndTimestamp(bucket));
+            Assertions.assertThat(parceledSeries.getValue(bucket)).isEqualTo(originalSeries.getValue(bucket));
+            Assertions.assertThat(parceledSeries.isEmpty(bucket)).isEqualTo(originalSeries.isEmpty(bucket));
+        }
+    }
+}
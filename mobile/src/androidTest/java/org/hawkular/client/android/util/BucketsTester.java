@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class BucketsTester {
+    @Test
+    public void width() {
+        Assertions.assertThat(Buckets.getCount(400, 4, TimeUnit.DAYS.toMillis(1))).isEqualTo(100);
+        Assertions.assertThat(Buckets.getCount(1600, 4, TimeUnit.DAYS.toMillis(1))).isEqualTo(400);
+    }
+
+    @Test
+    public void duration() {
+        Assertions.assertThat(Buckets.getCount(1600, 4, TimeUnit.MINUTES.toMillis(10))).isEqualTo(20);
+    }
+
+    @Test
+    public void bounds() {
+        Assertions.assertThat(Buckets.getCount(0, 4, TimeUnit.DAYS.toMillis(1))).isEqualTo(Buckets.MINIMUM);
+        Assertions.assertThat(Buckets.getCount(1600, 4, 0)).isEqualTo(Buckets.MINIMUM);
+        Assertions.assertThat(Buckets.getCount(Integer.MAX_VALUE, 1, Long.MAX_VALUE)).isEqualTo(Buckets.MAXIMUM);
+    }
+}
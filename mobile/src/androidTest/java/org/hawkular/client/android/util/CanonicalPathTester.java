@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class CanonicalPathTester {
+    @Test
+    public void parsing() {
+        CanonicalPath path = CanonicalPath.getByString("/t;tenant/f;feed/r;server/r;datasource");
+
+        Assertions.assertThat(path.getTenant()).isEqualTo("tenant");
+        Assertions.assertThat(path.getFeed()).isEqualTo("feed");
+        Assertions.assertThat(path.getResource()).isEqualTo("server/datasource");
+        Assertions.assertThat(path.getEnvironment()).isNull();
+        Assertions.assertThat(path.getResourceType()).isNull();
+
+        Assertions.assertThat(path.toString()).isEqualTo("/t;tenant/f;feed/r;server/r;datasource");
+    }
+
+    @Test
+    public void parsingTypes() {
+        CanonicalPath path = CanonicalPath.getByString("/t;tenant/f;feed/rt;type/mt;metric-type/m;metric");
+
+        Assertions.assertThat(path.getResourceType()).isEqualTo("type");
+        Assertions.assertThat(path.getMetricType()).isEqualTo("metric-type");
+        Assertions.assertThat(path.getMetric()).isEqualTo("metric");
+        Assertions.assertThat(path.getResource()).isNull();
+    }
+
+    @Test
+    public void interning() {
+        Assertions.assertThat(CanonicalPath.getByString("/t;tenant/f;feed"))
+                .isSameAs(CanonicalPath.getByString("/t;tenant/f;feed"));
+    }
+
+    @Test
+    public void fixing() {
+        CanonicalPath path = CanonicalPath.getByString("/t;tenant/f;feed/r;server/r;datasource");
+
+        Assertions.assertThat(path.fix("inventory/traversal/f;{f}/{r}/rl;isParentOf/type=r"))
+                .isEqualTo("inventory/traversal/f;feed/r;server/r;datasource/rl;isParentOf/type=r");
+        Assertions.assertThat(path.fix("inventory/traversal/type=f"))
+                .isEqualTo("inventory/traversal/type=f");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fixingMissing() {
+        CanonicalPath.getByString("/t;tenant/f;feed").fix("inventory/traversal/e;{e}/type=m");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class DownsamplerTester {
+    @Test
+    public void count() {
+        MetricSeries series = Downsampler.downsample(getSeries(100, -1), 10);
+
+        Assertions.assertThat(series.size()).isEqualTo(10);
+        Assertions.assertThat(series.getStartTimestamp(0)).isEqualTo(0);
+        Assertions.assertThat(series.getStartTimestamp(9)).isEqualTo(990);
+    }
+
+    @Test
+    public void spikes() {
+        MetricSeries series = Downsampler.downsample(getSeries(100, 42), 10);
+
+        boolean spikeKept = false;
+
+        for (int bucket = 0; bucket < series.size(); bucket++) {
+            spikeKept |= series.getStartTimestamp(bucket) == 420;
+        }
+
+        Assertions.assertThat(spikeKept).isTrue();
+    }
+
+    @Test
+    public void small() {
+        MetricSeries series = getSeries(5, -1);
+
+        Assertions.assertThat(Downsampler.downsample(series, 10)).isSameAs(series);
+        Assertions.assertThat(Downsampler.downsample(series, 2)).isSameAs(series);
+    }
+
+    @Test
+    public void statistics() {
+        MetricSeries.Builder seriesBuilder = new MetricSeries.Builder();
+
+        for (int bucket = 0; bucket < 100; bucket++) {
+            seriesBuilder.add(bucket * 10, bucket * 10 + 10, 1, 1 - bucket, 1 + bucket, 1 + bucket, false);
+        }
+
+        MetricSeries series = Downsampler.downsample(seriesBuilder.build(), 10);
+
+        Assertions.assertThat(series.getMinimum(8)).isEqualTo(-97);
+        Assertions.assertThat(series.getMaximum(8)).isEqualTo(99);
+        Assertions.assertThat(series.getPercentile(8)).isEqualTo(99);
+    }
+
+    private MetricSeries getSeries(int size, int spikeBucket) {
+        MetricSeries.Builder seriesBuilder = new MetricSeries.Builder();
+
+        for (int bucket = 0; bucket < size; bucket++) {
+            seriesBuilder.add(bucket * 10, bucket * 10 + 10, (bucket == spikeBucket) ? 1000 : bucket % 3, false);
+        }
+
+        return seriesBuilder.build();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class MetricRingTester {
+    @Test
+    public void filling() {
+        MetricRing ring = new MetricRing(3);
+
+        ring.add(0, 10, 1, false);
+        ring.add(10, 20, 2, false);
+
+        Assertions.assertThat(ring.size()).isEqualTo(2);
+        Assertions.assertThat(ring.getStartTimestamp(0)).isEqualTo(0);
+        Assertions.assertThat(ring.getStartTimestamp(1)).isEqualTo(10);
+    }
+
+    @Test
+    public void overwriting() {
+        MetricRing ring = new MetricRing(2);
+
+        ring.add(new MetricSeries.Builder()
+                .add(0, 10, 1, false)
+                .add(10, 20, 2, false)
+                .add(20, 30, 3, true)
+                .build());
+
+        Assertions.assertThat(ring.size()).isEqualTo(2);
+        Assertions.assertThat(ring.getStartTimestamp(0)).isEqualTo(10);
+        Assertions.assertThat(ring.getEndTimestamp(1)).isEqualTo(30);
+        Assertions.assertThat(ring.getValue(0)).isEqualTo(2);
+        Assertions.assertThat(ring.isEmpty(1)).isTrue();
+    }
+
+    @Test
+    public void replacing() {
+        MetricRing ring = new MetricRing(2);
+
+        ring.add(0, 10, 1, false);
+        ring.add(10, 20, 2, false);
+        ring.add(10, 20, 5, false);
+        ring.add(0, 10, 7, false);
+
+        Assertions.assertThat(ring.size()).isEqualTo(2);
+        Assertions.assertThat(ring.getValue(0)).isEqualTo(1);
+        Assertions.assertThat(ring.getValue(1)).isEqualTo(5);
+    }
+}
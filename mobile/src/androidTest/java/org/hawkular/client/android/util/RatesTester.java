@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class RatesTester {
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    @Test
+    public void increase() {
+        MetricSeries rates = Rates.getRates(new MetricSeries.Builder()
+                .add(0, SECOND, 10, false)
+                .add(SECOND, 2 * SECOND, 15, false)
+                .build(), SECOND);
+
+        Assertions.assertThat(rates.size()).isEqualTo(2);
+        Assertions.assertThat(rates.isEmpty(0)).isTrue();
+        Assertions.assertThat(rates.getValue(1)).isEqualTo(5);
+    }
+
+    @Test
+    public void units() {
+        MetricSeries rates = Rates.getRates(new MetricSeries.Builder()
+                .add(0, SECOND, 10, false)
+                .add(SECOND, 2 * SECOND, 15, false)
+                .build(), TimeUnit.MINUTES.toMillis(1));
+
+        Assertions.assertThat(rates.getValue(1)).isEqualTo(300);
+    }
+
+    @Test
+    public void reset() {
+        MetricSeries rates = Rates.getRates(new MetricSeries.Builder()
+                .add(0, SECOND, 100, false)
+                .add(SECOND, 2 * SECOND, 4, false)
+                .build(), SECOND);
+
+        Assertions.assertThat(rates.getValue(1)).isEqualTo(4);
+    }
+
+    @Test
+    public void gaps() {
+        MetricSeries rates = Rates.getRates(new MetricSeries.Builder()
+                .add(0, SECOND, 10, false)
+                .add(SECOND, 2 * SECOND, Double.NaN, true)
+                .add(2 * SECOND, 3 * SECOND, 20, false)
+                .build(), SECOND);
+
+        Assertions.assertThat(rates.isEmpty(1)).isTrue();
+        Assertions.assertThat(rates.getValue(2)).isEqualTo(5);
+    }
+}
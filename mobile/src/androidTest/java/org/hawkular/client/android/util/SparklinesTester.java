@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.assertj.core.api.Assertions;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+@RunWith(AndroidJUnit4.class)
+public final class SparklinesTester {
+    @Test
+    public void normalization() {
+        MetricSeries series = new MetricSeries.Builder()
+                .add(0, 10, 10, false)
+                .add(10, 20, 20, false)
+                .add(20, 30, 30, false)
+                .build();
+
+        Assertions.assertThat(Sparklines.getPoints(series, 3)).containsExactly(0f, 0.5f, 1f);
+    }
+
+    @Test
+    public void downsampling() {
+        MetricSeries series = new MetricSeries.Builder()
+                .add(0, 10, 10, false)
+                .add(10, 20, 30, false)
+                .add(20, 30, 50, false)
+                .add(30, 40, 70, false)
+                .build();
+
+        Assertions.assertThat(Sparklines.getPoints(series, 2)).containsExactly(0f, 1f);
+    }
+
+    @Test
+    public void gaps() {
+        MetricSeries series = new MetricSeries.Builder()
+                .add(0, 10, 10, false)
+                .add(10, 20, Double.NaN, true)
+                .add(20, 30, 10, false)
+                .build();
+
+        Assertions.assertThat(Sparklines.getPoints(series, 3)).containsExactly(0.5f, Float.NaN, 0.5f);
+    }
+}
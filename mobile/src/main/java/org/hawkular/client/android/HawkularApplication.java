@@ -16,6 +16,9 @@
  */
 package org.hawkular.client.android;
 
+import org.hawkular.client.android.backend.BackendBuckets;
+import org.hawkular.client.android.backend.BackendHttp;
+import org.hawkular.client.android.backend.BackendInventory;
 import org.hawkular.client.android.push.PushClient;
 import org.hawkular.client.android.util.Android;
 
@@ -32,6 +35,7 @@ public final class HawkularApplication extends Application {
         setUpLogging();
         setUpDetections();
 
+        setUpBackend();
         setUpPush();
     }
 
@@ -47,6 +51,12 @@ public final class HawkularApplication extends Application {
         }
     }
 
+    private void setUpBackend() {
+        BackendHttp.setUpCache(this);
+        BackendBuckets.setUpCache(this);
+        BackendInventory.setUpSnapshot(this);
+    }
+
     private void setUpPush() {
         PushClient.of(this).setUpPush();
     }
@@ -84,6 +84,13 @@ public final class AlertsAdapter extends BindableAdapter<Alert> {
         this.alerts = new ArrayList<>(alerts);
     }
 
+    public void setAlerts(@NonNull List<Alert> alerts) {
+        this.alerts.clear();
+        this.alerts.addAll(alerts);
+
+        notifyDataSetChanged();
+    }
+
     @Override
     public int getCount() {
         return alerts.size();
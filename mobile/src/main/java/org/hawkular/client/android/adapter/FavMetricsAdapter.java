@@ -21,6 +21,9 @@ import java.util.List;
 
 import org.hawkular.client.android.R;
 import org.hawkular.client.android.backend.model.Metric;
+import org.hawkular.client.android.backend.model.Persona;
+import org.hawkular.client.android.util.Sparklines;
+import org.hawkular.client.android.view.SparklineView;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
@@ -36,6 +39,7 @@ import butterknife.ButterKnife;
  * Favourite Metrics adapter.
  * <p/>
  * Transforms a list of Metrics to a human-readable interpretation.
+ * Each metric is shown with a sparkline of its recent data, if it is available in {@link Sparklines}.
  */
 
 public class FavMetricsAdapter extends BindableAdapter<Metric> {
@@ -46,14 +50,16 @@ public class FavMetricsAdapter extends BindableAdapter<Metric> {
     }
 
     private final List<Metric> metrics;
+    private final Persona persona;
 
     private final MetricListener metricListener;
 
     public FavMetricsAdapter(@NonNull Context context, @NonNull MetricListener metricMenuListener,
-                         @NonNull List<Metric> metrics) {
+                         @NonNull List<Metric> metrics, @NonNull Persona persona) {
         super(context);
         this.metricListener = metricMenuListener;
         this.metrics = metrics;
+        this.persona = persona;
     }
 
     @Override
@@ -75,7 +81,7 @@ public class FavMetricsAdapter extends BindableAdapter<Metric> {
     @NonNull
     @Override
     protected View newView(LayoutInflater inflater, ViewGroup viewContainer) {
-        View view = inflater.inflate(R.layout.layout_list_item_token, viewContainer, false);
+        View view = inflater.inflate(R.layout.layout_list_item_metric, viewContainer, false);
         view.setTag(new ViewHolder(view));
         return view;
     }
@@ -85,6 +91,7 @@ public class FavMetricsAdapter extends BindableAdapter<Metric> {
         ViewHolder viewHolder = (ViewHolder) view.getTag();
         viewHolder.titleText.setText(metric.getName());
         viewHolder.messageText.setText(metric.getId());
+        viewHolder.sparklineView.setPoints(Sparklines.getPoints(persona, metric));
 
         viewHolder.linearLayout.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -108,6 +115,9 @@ public class FavMetricsAdapter extends BindableAdapter<Metric> {
         @BindView(R.id.text_message)
         TextView messageText;
 
+        @BindView(R.id.chart_sparkline)
+        SparklineView sparklineView;
+
         @BindView(R.id.button_menu)
         View menuButton;
 
@@ -21,6 +21,9 @@ import java.net.URI;
 import java.net.URL;
 import java.util.UUID;
 
+import org.hawkular.client.android.backend.BackendBuckets;
+import org.hawkular.client.android.backend.BackendHttp;
+import org.hawkular.client.android.backend.BackendInventory;
 import org.jboss.aerogear.android.authorization.AuthzModule;
 import org.jboss.aerogear.android.core.Callback;
 import org.jboss.aerogear.android.pipe.callback.AbstractActivityCallback;
@@ -53,6 +56,9 @@ public class SecretStoreAuthzModule implements AuthzModule {
     private final Context context;
     private final SQLStore<Session> sessionStore;
 
+    private volatile Session session;
+    private volatile String authorization;
+
 
     public SecretStoreAuthzModule(Context context) {
         this.context = context.getApplicationContext();
@@ -80,7 +86,7 @@ public class SecretStoreAuthzModule implements AuthzModule {
 
     @Override
     public boolean hasCredentials() {
-        return sessionStore.read(AuthData.NAME) != null;
+        return getSession() != null;
     }
 
     @Override
@@ -88,7 +94,7 @@ public class SecretStoreAuthzModule implements AuthzModule {
         if (activity != null && activity.getIntent() != null) {
             Intent intent = activity.getIntent();
             if (intent.getStringExtra(AuthData.Credentials.CONTAIN) == null) {
-                Session session = sessionStore.read(AuthData.NAME);
+                Session session = getSession();
                 if(callback instanceof AbstractActivityCallback){
                     ((AbstractActivityCallback)callback).setActivity(activity);
                 }
@@ -162,19 +168,52 @@ public class SecretStoreAuthzModule implements AuthzModule {
     @Override
     public void deleteAccount() {
         sessionStore.remove(AuthData.NAME);
+
+        invalidateSession();
+
+        BackendHttp.evictCache();
+        BackendInventory.clearSnapshot();
+        BackendBuckets.clear();
     }
 
     @Override
     public AuthorizationFields getAuthorizationFields(URI requestUri, String method, byte[] requestBody) {
         AuthorizationFields fields = new AuthorizationFields();
-        Session storedAccount = sessionStore.read(AuthData.NAME);
-        String cred = new String(
-                Base64.encode((storedAccount.getUsername() + ":" +
-                        storedAccount.getPassword()).getBytes(), Base64.NO_WRAP));
-        fields.addHeader("Authorization", "Basic " + cred);
+        fields.addHeader("Authorization", getAuthorization());
         return fields;
     }
 
+    /**
+     * Reads the stored session once and keeps it in memory until it is saved or deleted,
+     * so authorizing a request does not hit the database.
+     */
+    private Session getSession() {
+        Session session = this.session;
+        if (session == null) {
+            session = sessionStore.read(AuthData.NAME);
+            this.session = session;
+        }
+        return session;
+    }
+
+    private String getAuthorization() {
+        String authorization = this.authorization;
+        if (authorization == null) {
+            Session session = getSession();
+            authorization = "Basic " + buildLoginData(session.getUsername(), session.getPassword());
+            this.authorization = authorization;
+
+            // Requests of the account are authorized from now on, so cached responses of others are left aside.
+            BackendHttp.setUpCacheAccount(session.getUsername());
+        }
+        return authorization;
+    }
+
+    private void invalidateSession() {
+        session = null;
+        authorization = null;
+    }
+
     @Override
     public ModuleFields loadModule(URI relativeURI, String httpMethod, byte[] requestBody) {
         AuthorizationFields authzFields = getAuthorizationFields(relativeURI, httpMethod, requestBody);
@@ -196,5 +235,7 @@ public class SecretStoreAuthzModule implements AuthzModule {
         session.setPassword(password);
 
         sessionStore.save(session);
+
+        invalidateSession();
     }
 }
\ No newline at end of file
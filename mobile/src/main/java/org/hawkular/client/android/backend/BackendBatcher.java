@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.client.android.backend.model.Metric;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.backend.model.MetricType;
+import org.jboss.aerogear.android.core.Callback;
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+/**
+ * Backend metric data batch reader.
+ * <p/>
+ * Reads bucketed data of multiple metrics using a single stats query, with metrics grouped by type.
+ * Series of each metric are delivered to callbacks of their own, the same way single metric reads do it.
+ */
+final class BackendBatcher {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final String CHARSET = "UTF-8";
+    }
+
+    private static final class Fields {
+        private Fields() {
+        }
+
+        public static final String METRICS = "metrics";
+        public static final String START = "start";
+        public static final String END = "end";
+        public static final String BUCKETS = "buckets";
+    }
+
+    private static final class Types {
+        private Types() {
+        }
+
+        public static final String AVAILABILITY = "availability";
+        public static final String COUNTER = "counter";
+        public static final String GAUGE = "gauge";
+    }
+
+    private final BackendRunner<MetricSeries> runner;
+    private final BackendSeriesParser averageParser;
+    private final BackendSeriesParser uptimeParser;
+
+    BackendBatcher(@NonNull BackendRunner<MetricSeries> runner) {
+        this.runner = runner;
+        this.averageParser = new BackendSeriesParser(BackendSeriesParser.Values.AVERAGE);
+        this.uptimeParser = new BackendSeriesParser(BackendSeriesParser.Values.UPTIME_RATIO);
+    }
+
+    void read(@NonNull final List<Metric> metrics, final long bucket, final long startTime, final long finishTime,
+              @NonNull List<Callback<MetricSeries>> callbacks,
+              @Nullable Activity activity, @Nullable Fragment fragment) {
+        final List<BackendReceiver<MetricSeries>> receivers = new ArrayList<>(callbacks.size());
+
+        for (Callback<MetricSeries> callback : callbacks) {
+            receivers.add(new BackendReceiver<>(activity, fragment, callback));
+        }
+
+        BackendHttp.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<MetricSeries> series = read(metrics, bucket, startTime, finishTime);
+
+                    for (int metricPosition = 0; metricPosition < metrics.size(); metricPosition++) {
+                        receivers.get(metricPosition).post(series.get(metricPosition));
+                    }
+                } catch (RuntimeException e) {
+                    for (BackendReceiver<MetricSeries> receiver : receivers) {
+                        receiver.post(e);
+                    }
+                }
+            }
+        });
+    }
+
+    private List<MetricSeries> read(List<Metric> metrics, long bucket, long startTime, long finishTime) {
+        URI uri = BackendPipes.Templates.METRIC_DATA_BATCH.expand().build();
+
+        HeaderAndBody response = runner.onRawQuery(uri, getQuery(metrics, bucket, startTime, finishTime));
+
+        try {
+            return readSeries(metrics, response.getBody());
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    /**
+     * Reads series of a batch response body in the order of metrics.
+     */
+    @NonNull
+    List<MetricSeries> readSeries(@NonNull List<Metric> metrics, @NonNull byte[] body) throws IOException {
+        Map<String, MetricSeries> series = readSeries(body);
+
+        List<MetricSeries> metricsSeries = new ArrayList<>(metrics.size());
+
+        for (Metric metric : metrics) {
+            metricsSeries.add(getSeries(series, metric));
+        }
+
+        return metricsSeries;
+    }
+
+    private byte[] getQuery(List<Metric> metrics, long bucket, long startTime, long finishTime) {
+        JsonObject metricsObject = new JsonObject();
+
+        for (Metric metric : metrics) {
+            String type = getType(metric);
+
+            if (!metricsObject.has(type)) {
+                metricsObject.add(type, new JsonArray());
+            }
+
+            metricsObject.getAsJsonArray(type).add(new JsonPrimitive(metric.getId()));
+        }
+
+        JsonObject queryObject = new JsonObject();
+        queryObject.add(Fields.METRICS, metricsObject);
+        queryObject.addProperty(Fields.START, startTime);
+        queryObject.addProperty(Fields.END, finishTime);
+        queryObject.addProperty(Fields.BUCKETS, bucket);
+
+        try {
+            return queryObject.toString().getBytes(Defaults.CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Map<String, MetricSeries> readSeries(byte[] body) throws IOException {
+        Map<String, MetricSeries> series = new HashMap<>();
+
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(new ByteArrayInputStream(body), Defaults.CHARSET));
+
+        try {
+            // Values of empty buckets are sent as NaN.
+            reader.setLenient(true);
+
+            // Empty ranges are returned without content, metrics get empty series then.
+            if (isEmpty(reader)) {
+                return series;
+            }
+
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String type = reader.nextName();
+                BackendSeriesParser parser = Types.AVAILABILITY.equals(type) ? uptimeParser : averageParser;
+
+                reader.beginObject();
+
+                while (reader.hasNext()) {
+                    String id = reader.nextName();
+
+                    series.put(getKey(type, id), parser.readSeries(reader));
+                }
+
+                reader.endObject();
+            }
+
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+
+        return series;
+    }
+
+    private boolean isEmpty(JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private MetricSeries getSeries(Map<String, MetricSeries> series, Metric metric) {
+        MetricSeries metricSeries = series.get(getKey(getType(metric), metric.getId()));
+
+        // Metrics without data in the range are not returned at all.
+        if (metricSeries == null) {
+            metricSeries = new MetricSeries.Builder().build();
+        }
+
+        return metricSeries;
+    }
+
+    private String getType(Metric metric) {
+        // Types not read separately are read as gauges, the same way single metric reads do it.
+        if (metric.getConfiguration().getType() == MetricType.AVAILABILITY) {
+            return Types.AVAILABILITY;
+        } else if (metric.getConfiguration().getType() == MetricType.COUNTER) {
+            return Types.COUNTER;
+        } else {
+            return Types.GAUGE;
+        }
+    }
+
+    private String getKey(String type, String id) {
+        return String.format("%s %s", type, id);
+    }
+}
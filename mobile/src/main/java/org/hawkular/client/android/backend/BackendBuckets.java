@@ -0,0 +1,525 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+import android.util.Pair;
+
+import timber.log.Timber;
+
+/**
+ * Backend metric buckets cache.
+ * <p/>
+ * Keeps finished metric buckets per metric and bucket duration in memory and on disk,
+ * together with time ranges these buckets cover. Buckets are kept as {@link MetricSeries} primitives,
+ * so cached ranges are merged and returned without parsing anything. Disjoint ranges are kept apart,
+ * so switching between time ranges does not throw cached buckets away.
+ * Only ranges not covered yet have to be read from the backend then.
+ * <p/>
+ * Bucket durations are limited to a known set, so different chart widths and time ranges share buckets.
+ * <p/>
+ * Series are written to disk by a single background writer, reads do not wait for disk writes.
+ * Series are not bound to an account, so they are removed with it, see {@link #clear()}.
+ */
+public final class BackendBuckets {
+    private BackendBuckets() {
+    }
+
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int MEMORY_SERIES = 32;
+        public static final int DISK_SERIES = 256;
+
+        public static final int SERIES_BUCKETS = 1024;
+
+        public static final String DISK_DIRECTORY = "buckets";
+        // Files are written using DataOutput, the format is changed if the layout changes.
+        public static final int DISK_FORMAT = 1;
+        public static final String DISK_WRITE_SUFFIX = ".write";
+
+        // Late data points can change a bucket for some time after its end.
+        public static final long DELAY = TimeUnit.MINUTES.toMillis(1);
+    }
+
+    private static final long[] DURATIONS = {
+            TimeUnit.SECONDS.toMillis(30),
+            TimeUnit.MINUTES.toMillis(1),
+            TimeUnit.MINUTES.toMillis(2),
+            TimeUnit.MINUTES.toMillis(5),
+            TimeUnit.MINUTES.toMillis(10),
+            TimeUnit.MINUTES.toMillis(15),
+            TimeUnit.MINUTES.toMillis(30),
+            TimeUnit.HOURS.toMillis(1),
+            TimeUnit.HOURS.toMillis(2),
+            TimeUnit.HOURS.toMillis(3),
+            TimeUnit.HOURS.toMillis(6),
+            TimeUnit.HOURS.toMillis(12),
+            TimeUnit.DAYS.toMillis(1),
+            TimeUnit.DAYS.toMillis(2),
+            TimeUnit.DAYS.toMillis(7)
+    };
+
+    static final class Series {
+        private MetricSeries buckets = new MetricSeries.Builder().build();
+
+        // Covered time ranges by their start times, ranges do not overlap or touch each other.
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+        public synchronized boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+
+        @NonNull
+        public synchronized List<Pair<Long, Long>> getRanges() {
+            List<Pair<Long, Long>> ranges = new ArrayList<>(this.ranges.size());
+
+            for (Map.Entry<Long, Long> range : this.ranges.entrySet()) {
+                ranges.add(Pair.create(range.getKey(), range.getValue()));
+            }
+
+            return ranges;
+        }
+
+        @NonNull
+        public synchronized List<Pair<Long, Long>> getMissingRanges(long startTime, long finishTime) {
+            List<Pair<Long, Long>> missingRanges = new ArrayList<>();
+
+            Long rangesStartTime = ranges.floorKey(startTime);
+            long missingStartTime = startTime;
+
+            for (Map.Entry<Long, Long> range : ranges.tailMap(
+                    (rangesStartTime != null) ? rangesStartTime : startTime).entrySet()) {
+                if (range.getKey() >= finishTime) {
+                    break;
+                }
+
+                if (range.getKey() > missingStartTime) {
+                    missingRanges.add(Pair.create(missingStartTime, range.getKey()));
+                }
+
+                missingStartTime = Math.max(missingStartTime, range.getValue());
+            }
+
+            if (missingStartTime < finishTime) {
+                missingRanges.add(Pair.create(missingStartTime, finishTime));
+            }
+
+            return missingRanges;
+        }
+
+        public synchronized void put(long startTime, long finishTime, @NonNull MetricSeries buckets) {
+            if (startTime >= finishTime) {
+                return;
+            }
+
+            long rangeStartTime = startTime;
+            long rangeFinishTime = finishTime;
+
+            Map.Entry<Long, Long> range = ranges.floorEntry(finishTime);
+
+            // Ranges overlapping or touching the new one are merged with it.
+            while ((range != null) && (range.getValue() >= startTime)) {
+                rangeStartTime = Math.min(rangeStartTime, range.getKey());
+                rangeFinishTime = Math.max(rangeFinishTime, range.getValue());
+
+                ranges.remove(range.getKey());
+
+                range = ranges.floorEntry(finishTime);
+            }
+
+            ranges.put(rangeStartTime, rangeFinishTime);
+
+            // Buckets are added in order, so the builder appends them without moving anything.
+            MetricSeries.Builder bucketsBuilder = new MetricSeries.Builder(this.buckets.size() + buckets.size());
+
+            addBuckets(bucketsBuilder, this.buckets, Long.MIN_VALUE, startTime);
+            addBuckets(bucketsBuilder, buckets, startTime, finishTime);
+            addBuckets(bucketsBuilder, this.buckets, finishTime, Long.MAX_VALUE);
+
+            this.buckets = bucketsBuilder.build();
+
+            trim(startTime, finishTime);
+        }
+
+        private void trim(long startTime, long finishTime) {
+            if (buckets.size() <= Defaults.SERIES_BUCKETS) {
+                return;
+            }
+
+            // Series extended over and over again, like live charts do it, would grow without bounds otherwise.
+            // Buckets farthest from the range put are dropped first.
+            int firstBucket = 0;
+            int lastBucket = buckets.size() - 1;
+
+            while (lastBucket - firstBucket + 1 > Defaults.SERIES_BUCKETS) {
+                long firstBucketDistance = startTime - buckets.getStartTimestamp(firstBucket);
+                long lastBucketDistance = buckets.getStartTimestamp(lastBucket) - finishTime;
+
+                if (firstBucketDistance >= lastBucketDistance) {
+                    firstBucket++;
+                } else {
+                    lastBucket--;
+                }
+            }
+
+            if (firstBucket > 0) {
+                trimRangesBefore(buckets.getStartTimestamp(firstBucket));
+            }
+
+            if (lastBucket < buckets.size() - 1) {
+                trimRangesAfter(buckets.getStartTimestamp(lastBucket + 1));
+            }
+
+            MetricSeries.Builder bucketsBuilder = new MetricSeries.Builder(lastBucket - firstBucket + 1);
+
+            for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                bucketsBuilder.add(buckets, bucket);
+            }
+
+            buckets = bucketsBuilder.build();
+        }
+
+        private void trimRangesBefore(long time) {
+            Map.Entry<Long, Long> range;
+
+            while ((range = ranges.lowerEntry(time)) != null) {
+                ranges.remove(range.getKey());
+
+                if (range.getValue() > time) {
+                    ranges.put(time, range.getValue());
+                }
+            }
+        }
+
+        private void trimRangesAfter(long time) {
+            Map.Entry<Long, Long> range;
+
+            while ((range = ranges.ceilingEntry(time)) != null) {
+                ranges.remove(range.getKey());
+            }
+
+            range = ranges.lowerEntry(time);
+
+            if ((range != null) && (range.getValue() > time)) {
+                ranges.put(range.getKey(), time);
+            }
+        }
+
+        @NonNull
+        public synchronized MetricSeries get(long startTime, long finishTime) {
+            MetricSeries.Builder bucketsBuilder = new MetricSeries.Builder();
+
+            addBuckets(bucketsBuilder, buckets, startTime, finishTime);
+
+            return bucketsBuilder.build();
+        }
+
+        synchronized void write(@NonNull DataOutput output, @NonNull String key) throws IOException {
+            output.writeInt(Defaults.DISK_FORMAT);
+            output.writeUTF(key);
+
+            output.writeInt(ranges.size());
+
+            for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+                output.writeLong(range.getKey());
+                output.writeLong(range.getValue());
+            }
+
+            output.writeInt(buckets.size());
+
+            for (int bucket = 0; bucket < buckets.size(); bucket++) {
+                output.writeLong(buckets.getStartTimestamp(bucket));
+                output.writeLong(buckets.getEndTimestamp(bucket));
+                output.writeDouble(buckets.getValue(bucket));
+                output.writeDouble(buckets.getMinimum(bucket));
+                output.writeDouble(buckets.getMaximum(bucket));
+                output.writeDouble(buckets.getPercentile(bucket));
+                output.writeBoolean(buckets.isEmpty(bucket));
+            }
+        }
+
+        synchronized void read(@NonNull DataInput input) throws IOException {
+            int rangesCount = input.readInt();
+
+            List<Pair<Long, Long>> ranges = new ArrayList<>(rangesCount);
+
+            for (int range = 0; range < rangesCount; range++) {
+                ranges.add(Pair.create(input.readLong(), input.readLong()));
+            }
+
+            int bucketsCount = input.readInt();
+
+            MetricSeries.Builder bucketsBuilder = new MetricSeries.Builder(bucketsCount);
+
+            for (int bucket = 0; bucket < bucketsCount; bucket++) {
+                bucketsBuilder.add(input.readLong(), input.readLong(), input.readDouble(),
+                        input.readDouble(), input.readDouble(), input.readDouble(), input.readBoolean());
+            }
+
+            MetricSeries buckets = bucketsBuilder.build();
+
+            for (Pair<Long, Long> range : ranges) {
+                put(range.first, range.second, buckets);
+            }
+        }
+
+        private static void addBuckets(MetricSeries.Builder bucketsBuilder, MetricSeries buckets,
+                                       long startTime, long finishTime) {
+            for (int bucket = 0; bucket < buckets.size(); bucket++) {
+                long bucketTime = buckets.getStartTimestamp(bucket);
+
+                if ((bucketTime >= startTime) && (bucketTime < finishTime)) {
+                    bucketsBuilder.add(buckets, bucket);
+                }
+            }
+        }
+    }
+
+    private static final LruCache<String, Series> memorySeries = new LruCache<>(Defaults.MEMORY_SERIES);
+
+    private static final ExecutorService diskWriter = Executors.newSingleThreadExecutor();
+    private static final Set<String> diskWrites = new HashSet<>();
+
+    private static volatile File diskDirectory;
+
+    public static synchronized void setUpCache(@NonNull Context context) {
+        diskDirectory = new File(context.getCacheDir(), Defaults.DISK_DIRECTORY);
+    }
+
+    /**
+     * Removes series from memory and from disk, for example when the account is deleted.
+     */
+    public static void clear() {
+        synchronized (BackendBuckets.class) {
+            memorySeries.evictAll();
+        }
+
+        // Writes queued before are executed first, so removed files are not written again.
+        diskWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                File diskDirectory = BackendBuckets.diskDirectory;
+
+                File[] seriesFiles = (diskDirectory != null) ? diskDirectory.listFiles() : null;
+
+                if (seriesFiles == null) {
+                    return;
+                }
+
+                for (File seriesFile : seriesFiles) {
+                    if (!seriesFile.delete()) {
+                        Timber.d("Metric buckets file removing failed.");
+                    }
+                }
+            }
+        });
+    }
+
+    static long getDuration(long startTime, long finishTime, long count) {
+        long duration = (finishTime - startTime) / Math.max(count, 1);
+
+        for (long knownDuration : DURATIONS) {
+            if (knownDuration >= duration) {
+                return knownDuration;
+            }
+        }
+
+        return DURATIONS[DURATIONS.length - 1];
+    }
+
+    static long getFinishedTime(long duration) {
+        long time = System.currentTimeMillis() - Defaults.DELAY;
+
+        return time - time % duration;
+    }
+
+    @NonNull
+    static synchronized Series getSeries(@NonNull String key) {
+        Series series = memorySeries.get(key);
+
+        if (series == null) {
+            series = readSeries(key);
+
+            memorySeries.put(key, series);
+        }
+
+        return series;
+    }
+
+    static void putSeries(@NonNull String key, long startTime, long finishTime, @NonNull MetricSeries buckets) {
+        Series series = getSeries(key);
+
+        series.put(startTime, finishTime, buckets);
+
+        postSeries(key, series);
+    }
+
+    private static void postSeries(final String key, final Series series) {
+        synchronized (diskWrites) {
+            // A pending write takes the latest series state, there is no point in queueing another one.
+            if (!diskWrites.add(key)) {
+                return;
+            }
+        }
+
+        diskWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (diskWrites) {
+                    diskWrites.remove(key);
+                }
+
+                writeSeries(key, series);
+            }
+        });
+    }
+
+    @NonNull
+    static synchronized MetricSeries getSeriesBuckets(@NonNull String key, long startTime, long finishTime) {
+        return getSeries(key).get(startTime, finishTime);
+    }
+
+    private static File getSeriesFile(String key) {
+        return new File(diskDirectory, String.format("%08x", key.hashCode()));
+    }
+
+    private static Series readSeries(String key) {
+        Series series = new Series();
+
+        if (diskDirectory == null) {
+            return series;
+        }
+
+        File seriesFile = getSeriesFile(key);
+
+        if (!seriesFile.exists()) {
+            return series;
+        }
+
+        try {
+            DataInputStream seriesInput = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(seriesFile)));
+
+            try {
+                // Different keys can share a file name, files of older formats are not read.
+                if ((seriesInput.readInt() == Defaults.DISK_FORMAT) && key.equals(seriesInput.readUTF())) {
+                    series.read(seriesInput);
+
+                    if (!seriesFile.setLastModified(System.currentTimeMillis())) {
+                        Timber.d("Metric buckets file touching failed.");
+                    }
+                }
+            } finally {
+                seriesInput.close();
+            }
+        } catch (IOException e) {
+            Timber.d(e, "Metric buckets reading failed.");
+
+            return new Series();
+        }
+
+        return series;
+    }
+
+    private static void writeSeries(String key, Series series) {
+        File diskDirectory = BackendBuckets.diskDirectory;
+
+        if (diskDirectory == null) {
+            return;
+        }
+
+        if (!diskDirectory.exists() && !diskDirectory.mkdirs()) {
+            return;
+        }
+
+        File seriesFile = getSeriesFile(key);
+        File seriesWriteFile = new File(diskDirectory, seriesFile.getName() + Defaults.DISK_WRITE_SUFFIX);
+
+        try {
+            DataOutputStream seriesOutput = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(seriesWriteFile)));
+
+            try {
+                series.write(seriesOutput, key);
+            } finally {
+                seriesOutput.close();
+            }
+
+            // Series files are replaced at once, so reading them never meets a half-written one.
+            if (!seriesWriteFile.renameTo(seriesFile)) {
+                Timber.d("Metric buckets file replacing failed.");
+            }
+        } catch (IOException e) {
+            Timber.d(e, "Metric buckets writing failed.");
+        }
+
+        trimSeries(diskDirectory);
+    }
+
+    private static void trimSeries(File diskDirectory) {
+        File[] seriesFiles = diskDirectory.listFiles();
+
+        if ((seriesFiles == null) || (seriesFiles.length <= Defaults.DISK_SERIES)) {
+            return;
+        }
+
+        Arrays.sort(seriesFiles, new FileTimeComparator());
+
+        for (int seriesFilePosition = Defaults.DISK_SERIES; seriesFilePosition < seriesFiles.length;
+             seriesFilePosition++) {
+            if (!seriesFiles[seriesFilePosition].delete()) {
+                Timber.d("Metric buckets file removing failed.");
+            }
+        }
+    }
+
+    private static final class FileTimeComparator implements Comparator<File> {
+        @Override
+        public int compare(File leftFile, File rightFile) {
+            // Recently used files go first.
+            return Long.valueOf(rightFile.lastModified()).compareTo(leftFile.lastModified());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.jboss.aerogear.android.core.Callback;
+
+import com.squareup.okhttp.Response;
+
+import android.app.Activity;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.app.Fragment;
+import android.text.TextUtils;
+import android.util.Pair;
+
+/**
+ * Backend metric buckets reader.
+ * <p/>
+ * Reads metric buckets using {@link BackendBuckets}. Requested time ranges are aligned to bucket durations,
+ * finished buckets are taken from the cache and only missing ranges are read from the backend.
+ * Missing ranges are parsed straight into {@link MetricSeries} while they are transferred,
+ * combined buckets are delivered as a single series without serializing them again.
+ * <p/>
+ * Reads are executed using the {@link BackendHttp} executor, results are delivered using {@link BackendReceiver}.
+ */
+final class BackendBucketsRunner {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int RANGE_READS = 2;
+    }
+
+    private final BackendRunner<MetricSeries> runner;
+    private final BackendSeriesParser parser;
+    private final URL baseUrl;
+    private final BackendPersonnel personnel;
+    private final BackendFlights<MetricSeries> flights = new BackendFlights<>();
+
+    BackendBucketsRunner(@NonNull BackendRunner<MetricSeries> runner, @NonNull BackendSeriesParser parser,
+                         @NonNull URL baseUrl, @NonNull BackendPersonnel personnel) {
+        this.runner = runner;
+        this.parser = parser;
+        this.baseUrl = baseUrl;
+        this.personnel = personnel;
+    }
+
+    void read(@NonNull final URI uri, @Nullable Activity activity, @Nullable Fragment fragment,
+              @NonNull Callback<MetricSeries> callback) {
+        final BackendReceiver<MetricSeries> receiver = new BackendReceiver<>(activity, fragment, callback);
+
+        BackendHttp.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    receiver.post(read(uri));
+                } catch (RuntimeException e) {
+                    receiver.post(e);
+                }
+            }
+        });
+    }
+
+    @NonNull
+    @WorkerThread
+    MetricSeries read(@NonNull URI uri) {
+        Uri parsedUri = Uri.parse(uri.toString());
+
+        String startParameter = parsedUri.getQueryParameter(BackendPipes.Parameters.START);
+        String finishParameter = parsedUri.getQueryParameter(BackendPipes.Parameters.FINISH);
+        String bucketsParameter = parsedUri.getQueryParameter(BackendPipes.Parameters.BUCKETS);
+        final String percentilesParameter = parsedUri.getQueryParameter(BackendPipes.Parameters.PERCENTILES);
+
+        if (TextUtils.isEmpty(startParameter) || TextUtils.isEmpty(finishParameter)
+                || TextUtils.isEmpty(bucketsParameter)) {
+            return readRange(uri);
+        }
+
+        final long duration = BackendBuckets.getDuration(
+                Long.parseLong(startParameter), Long.parseLong(finishParameter), Long.parseLong(bucketsParameter));
+
+        final long startTime = getAlignedTime(Long.parseLong(startParameter), duration);
+        final long finishTime = getAlignedTime(Long.parseLong(finishParameter) + duration - 1, duration);
+
+        final String path = parsedUri.getEncodedPath();
+
+        // Charts opened again while reading share the read instead of merging the same ranges twice.
+        String flightKey = String.format("%s %d %d",
+                getKey(path, percentilesParameter, duration), startTime, finishTime);
+
+        return flights.execute(flightKey, new Callable<MetricSeries>() {
+            @Override
+            public MetricSeries call() {
+                return read(path, percentilesParameter, duration, startTime, finishTime);
+            }
+        });
+    }
+
+    private long getAlignedTime(long time, long duration) {
+        return time - time % duration;
+    }
+
+    private MetricSeries read(String path, String percentiles, long duration, long startTime, long finishTime) {
+        String key = getKey(path, percentiles, duration);
+
+        long finishedTime = BackendBuckets.getFinishedTime(duration);
+
+        List<Pair<Long, Long>> missingRanges = BackendBuckets.getSeries(key).getMissingRanges(startTime, finishTime);
+
+        // Scattered missing ranges are read at once, a single larger response is cheaper than a lot of requests.
+        if (missingRanges.size() > Defaults.RANGE_READS) {
+            missingRanges = Collections.singletonList(Pair.create(
+                    missingRanges.get(0).first, missingRanges.get(missingRanges.size() - 1).second));
+        }
+
+        MetricSeries.Builder unfinishedBuckets = new MetricSeries.Builder();
+
+        for (Pair<Long, Long> missingRange : missingRanges) {
+            MetricSeries buckets = read(path, percentiles, duration,
+                    missingRange.first, missingRange.second, finishedTime, key);
+
+            for (int bucket = 0; bucket < buckets.size(); bucket++) {
+                if (buckets.getStartTimestamp(bucket) >= finishedTime) {
+                    unfinishedBuckets.add(buckets, bucket);
+                }
+            }
+        }
+
+        return BackendBuckets.getSeriesBuckets(key, startTime, Math.min(finishTime, finishedTime))
+                .merge(unfinishedBuckets.build());
+    }
+
+    private MetricSeries read(String path, String percentiles, long duration,
+                              long startTime, long finishTime, long finishedTime, String key) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(BackendPipes.Parameters.START, String.valueOf(startTime));
+        parameters.put(BackendPipes.Parameters.FINISH, String.valueOf(finishTime));
+        parameters.put(BackendPipes.Parameters.BUCKET_DURATION, String.format("%dms", duration));
+
+        if (!TextUtils.isEmpty(percentiles)) {
+            parameters.put(BackendPipes.Parameters.PERCENTILES, percentiles);
+        }
+
+        Uri.Builder uriBuilder = new Uri.Builder().encodedPath(path);
+
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            uriBuilder.appendQueryParameter(parameter.getKey(), parameter.getValue());
+        }
+
+        MetricSeries buckets = readRange(URI.create(uriBuilder.build().toString()));
+
+        if (startTime < finishedTime) {
+            BackendBuckets.putSeries(key, startTime, Math.min(finishTime, finishedTime), buckets);
+        }
+
+        return buckets;
+    }
+
+    private MetricSeries readRange(URI uri) {
+        try {
+            Response response = runner.onStreamedRead(uri);
+
+            try {
+                return parser.readSeries(response.body().charStream());
+            } finally {
+                response.body().close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String getKey(String path, String percentiles, long duration) {
+        String key = String.format("%s %s/%s %d",
+                personnel.getPersona().getId(), baseUrl.toExternalForm(), path, duration);
+
+        // Buckets read without percentiles do not have them, so they are cached apart.
+        if (TextUtils.isEmpty(percentiles)) {
+            return key;
+        }
+
+        return String.format("%s %s", key, percentiles);
+    }
+}
@@ -14,34 +14,21 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.hawkular.client.android.backend.model;
+package org.hawkular.client.android.backend;
 
-import com.google.gson.annotations.SerializedName;
+import java.util.List;
 
-public abstract class MetricBucket {
-
-    @SerializedName("start")
-    protected long startTimestamp;
-
-    @SerializedName("end")
-    protected long endTimestamp;
-
-    @SerializedName("empty")
-    protected boolean empty;
-
-    public abstract String getValue();
-
-    public long getStartTimestamp() {
-        return startTimestamp;
-    }
-
-    public long getEndTimestamp() {
-        return endTimestamp;
-    }
-
-    public boolean isEmpty() {
-        return empty;
-    }
+import org.jboss.aerogear.android.core.Callback;
 
+import android.support.annotation.NonNull;
 
+/**
+ * Backend chunked {@link org.jboss.aerogear.android.core.Callback}.
+ * <p/>
+ * Receives items of streamed responses in chunks while the response is still transferred.
+ * Chunks contain new items only and are the only way items are delivered.
+ * {@link #onSuccess(Object)} receives an empty list once the response is read, items are not collected again.
+ */
+public interface BackendChunkCallback<T> extends Callback<List<T>> {
+    void onChunk(@NonNull List<T> chunk);
 }
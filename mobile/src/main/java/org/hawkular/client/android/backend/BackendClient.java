@@ -22,46 +22,59 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.hawkular.client.android.auth.ModuleKeeper;
 import org.hawkular.client.android.auth.SecretStoreAuthzModule;
 import org.hawkular.client.android.backend.model.Alert;
+import org.hawkular.client.android.backend.model.AlertStatus;
 import org.hawkular.client.android.backend.model.Environment;
 import org.hawkular.client.android.backend.model.Feed;
 import org.hawkular.client.android.backend.model.Metric;
-import org.hawkular.client.android.backend.model.MetricAvailabilityBucket;
-import org.hawkular.client.android.backend.model.MetricBucket;
-import org.hawkular.client.android.backend.model.MetricCounterBucket;
-import org.hawkular.client.android.backend.model.MetricGaugeBucket;
+import org.hawkular.client.android.backend.model.MetricSeries;
 import org.hawkular.client.android.backend.model.MetricType;
 import org.hawkular.client.android.backend.model.Note;
 import org.hawkular.client.android.backend.model.Operation;
 import org.hawkular.client.android.backend.model.Persona;
 import org.hawkular.client.android.backend.model.Resource;
+import org.hawkular.client.android.backend.model.ResourceChildren;
 import org.hawkular.client.android.backend.model.Trigger;
 import org.hawkular.client.android.util.CanonicalPath;
 import org.hawkular.client.android.util.Ports;
-import org.hawkular.client.android.util.Uris;
+import org.hawkular.client.android.util.Sparklines;
 import org.hawkular.client.android.util.Urls;
 import org.jboss.aerogear.android.authorization.AuthzModule;
 import org.jboss.aerogear.android.core.Callback;
 import org.jboss.aerogear.android.core.ReadFilter;
 import org.jboss.aerogear.android.pipe.LoaderPipe;
-import org.jboss.aerogear.android.pipe.PipeConfiguration;
+import org.jboss.aerogear.android.pipe.OnPipeCreatedListener;
+import org.jboss.aerogear.android.pipe.Pipe;
+import org.jboss.aerogear.android.pipe.PipeHandler;
 import org.jboss.aerogear.android.pipe.PipeManager;
+import org.jboss.aerogear.android.pipe.ResponseParser;
 import org.jboss.aerogear.android.pipe.module.PipeModule;
+import org.jboss.aerogear.android.pipe.rest.RestAdapter;
 import org.jboss.aerogear.android.pipe.rest.RestfulPipeConfiguration;
+import org.jboss.aerogear.android.pipe.rest.gson.GsonResponseParser;
 
 import android.Manifest;
 import android.app.Activity;
 import android.content.Context;
+import android.os.AsyncTask;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.RequiresPermission;
 import android.support.v4.app.Fragment;
 
+import timber.log.Timber;
+
 /**
  * Backend client.
  * <p/>
@@ -76,11 +89,48 @@ import android.support.v4.app.Fragment;
  * <p/>
  * The next step is to configure {@link org.jboss.aerogear.android.pipe.Pipe} instances.
  * The best time to to do so of course is after the authorization process.
+ * Configuration is cheap and idempotent: it only remembers the backend and the persona,
+ * each {@link org.jboss.aerogear.android.pipe.Pipe} is registered lazily on its first use.
+ * Changing the persona for the same backend keeps registered pipes and swaps the persona header only.
  * <p/>
  * {@link org.jboss.aerogear.android.pipe.Pipe} instances are not exposed to class users, external API prefers
  * {@link org.jboss.aerogear.android.core.Callback} over them.
+ * <p/>
+ * All {@link org.jboss.aerogear.android.pipe.Pipe} instances execute requests using the shared {@link BackendHttp}
+ * client via {@link BackendRunner}. Inventory and triggers are read conditionally using {@link BackendValidators},
+ * unchanged responses are not transferred and parsed again. Metric data is read using {@link BackendBuckets},
+ * so only buckets missing in the cache are transferred. Inventory is kept in the {@link BackendInventory} snapshot
+ * and shown from it at once, even without network access. Inventory children can be prefetched
+ * using {@link BackendPrefetcher} while the user looks at their parents.
+ * <p/>
+ * Feed resources are streamed using {@link BackendStreamer} instead
+ * if a {@link BackendChunkCallback} is used, so first items are available before the response is read.
+ * Data of multiple metrics can be read at once using {@link BackendBatcher}.
  */
 public final class BackendClient {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int PREFETCH_DEPTH = 2;
+
+        public static final int CHILDREN_READS = 3;
+    }
+
+    private static final Set<String> configuredPipes = new HashSet<>();
+    private static final Map<String, BackendReader<?>> pipesReaders = new HashMap<>();
+    private static final Map<String, BackendStreamer<?>> pipesStreamers = new HashMap<>();
+    private static final Map<String, BackendInventoryRunner<?>> pipesInventoryRunners = new HashMap<>();
+    private static final Map<String, BackendRunner<?>> pipesValidatedRunners = new HashMap<>();
+    private static final Map<String, BackendBucketsRunner> pipesBucketsRunners = new HashMap<>();
+    private static final BackendValidators pipesValidators = new BackendValidators(true);
+    private static final BackendValidators pipesSnapshotValidators = new BackendValidators(false);
+    private static final BackendPrefetcher<ResourceChildren> childrenPrefetcher = new BackendPrefetcher<>();
+
+    private static URL pipesBackendUrl;
+    private static BackendPersonnel pipesPersonnel;
+    private static BackendBatcher pipesBatcher;
+
     private final Activity activity;
     private final Fragment fragment;
 
@@ -102,7 +152,9 @@ public final class BackendClient {
     }
 
     public void configureAuthorization(Context context) {
-        ModuleKeeper.modules.put("hawkular", new SecretStoreAuthzModule(context));
+        if (!ModuleKeeper.modules.containsKey("hawkular")) {
+            ModuleKeeper.modules.put("hawkular", new SecretStoreAuthzModule(context));
+        }
     }
 
     public void configureCommunication(@NonNull String host, @NonNull Persona persona) {
@@ -119,52 +171,248 @@ public final class BackendClient {
         configurePipes(backendUrl, persona);
     }
 
-    private void configurePipes(URL backendUrl, Persona persona) {
-        URL pipeUrl = Urls.getUrl(backendUrl, BackendPipes.Paths.ROOT);
-        URL alertResolveUrl = Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_RESOLVE);
-        URL alertAckUrl = Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_ACKNOWLEDGE);
-        URL alertNoteUrl = Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_NOTE);
-        List<PipeModule> pipeModules = Arrays.asList(
-                getAuthorizationModule(),
-                getPersonnelModule(persona));
-
-        configurePipe(BackendPipes.Names.ALERTS, pipeUrl, pipeModules, Alert.class);
-        configurePipe(BackendPipes.Names.ALERT_ACKNOWLEDGE, alertAckUrl, pipeModules, String.class);
-        configurePipe(BackendPipes.Names.ALERT_RESOLVE, alertResolveUrl, pipeModules, String.class);
-        configurePipe(BackendPipes.Names.ENVIRONMENTS, pipeUrl, pipeModules, Environment.class);
-        configurePipe(BackendPipes.Names.FEEDS, pipeUrl, pipeModules, Feed.class);
-        configurePipe(BackendPipes.Names.FEED_METRICS, pipeUrl, pipeModules, Metric.class);
-        configurePipe(BackendPipes.Names.FEED_CHILD_RESOURCES, pipeUrl, pipeModules, Resource.class);
-        configurePipe(BackendPipes.Names.FEED_RESOURCES, pipeUrl, pipeModules, Resource.class);
-        configurePipe(BackendPipes.Names.METRICS, pipeUrl, pipeModules, Metric.class);
-        configurePipe(BackendPipes.Names.METRIC_DATA_AVAILABILITY, pipeUrl, pipeModules,
-                MetricAvailabilityBucket.class);
-        configurePipe(BackendPipes.Names.METRIC_DATA_COUNTER, pipeUrl, pipeModules, MetricCounterBucket.class);
-        configurePipe(BackendPipes.Names.METRIC_DATA_GAUGE, pipeUrl, pipeModules, MetricGaugeBucket.class);
-        configurePipe(BackendPipes.Names.NOTE, alertNoteUrl, pipeModules, Note.class);
-        configurePipe(BackendPipes.Names.OPERATIONS, pipeUrl, pipeModules, Operation.class);
-        configurePipe(BackendPipes.Names.PERSONA, backendUrl, pipeModules, Persona.class);
-        configurePipe(BackendPipes.Names.TRIGGERS, pipeUrl, pipeModules, Trigger.class);
-    }
-
-    private AuthzModule getAuthorizationModule() {
+    private static synchronized void configurePipes(URL backendUrl, Persona persona) {
+        if (isBackendConfigured(backendUrl)) {
+            pipesPersonnel.setPersona(persona);
+            return;
+        }
+
+        pipesBackendUrl = backendUrl;
+        pipesPersonnel = new BackendPersonnel(persona);
+
+        configuredPipes.clear();
+        pipesReaders.clear();
+        pipesStreamers.clear();
+        pipesInventoryRunners.clear();
+        pipesValidatedRunners.clear();
+        pipesBucketsRunners.clear();
+        pipesValidators.clear();
+        pipesSnapshotValidators.clear();
+        childrenPrefetcher.clear();
+        pipesBatcher = null;
+
+        Sparklines.clear();
+    }
+
+    private static boolean isBackendConfigured(URL backendUrl) {
+        // URL.equals resolves hosts, comparing string forms avoids network access.
+        return (pipesBackendUrl != null) && pipesBackendUrl.toExternalForm().equals(backendUrl.toExternalForm());
+    }
+
+    private static synchronized void configurePipe(String pipeName) {
+        if (configuredPipes.contains(pipeName)) {
+            return;
+        }
+
+        if (pipesBackendUrl == null) {
+            throw new IllegalStateException("Backend communication is not configured.");
+        }
+
+        if (isPipeBucketed(pipeName)) {
+            configureBucketsPipe(pipeName, getPipeUrl(pipeName), getPipeModules());
+        } else {
+            configurePipe(pipeName, getPipeUrl(pipeName), getPipeModules(), getPipeClass(pipeName),
+                    isPipeValidated(pipeName), isPipeSnapshotted(pipeName));
+        }
+
+        configuredPipes.add(pipeName);
+    }
+
+    private static List<PipeModule> getPipeModules() {
+        return Arrays.asList(getAuthorizationModule(), pipesPersonnel);
+    }
+
+    private static URL getPipeUrl(String pipeName) {
+        URL pipeUrl = Urls.getUrl(pipesBackendUrl, BackendPipes.Paths.ROOT);
+
+        switch (pipeName) {
+            case BackendPipes.Names.ALERT_ACKNOWLEDGE:
+                return Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_ACKNOWLEDGE);
+
+            case BackendPipes.Names.ALERT_RESOLVE:
+                return Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_RESOLVE);
+
+            case BackendPipes.Names.NOTE:
+                return Urls.getUrl(pipeUrl, BackendPipes.Paths.ALERT_NOTE);
+
+            case BackendPipes.Names.PERSONA:
+                return pipesBackendUrl;
+
+            default:
+                return pipeUrl;
+        }
+    }
+
+    private static Class<?> getPipeClass(String pipeName) {
+        switch (pipeName) {
+            case BackendPipes.Names.ALERTS:
+                return Alert.class;
+
+            case BackendPipes.Names.ALERT_ACKNOWLEDGE:
+            case BackendPipes.Names.ALERT_RESOLVE:
+                return String.class;
+
+            case BackendPipes.Names.ENVIRONMENTS:
+                return Environment.class;
+
+            case BackendPipes.Names.FEEDS:
+                return Feed.class;
+
+            case BackendPipes.Names.FEED_METRICS:
+            case BackendPipes.Names.METRICS:
+                return Metric.class;
+
+            case BackendPipes.Names.FEED_CHILD_RESOURCES:
+            case BackendPipes.Names.FEED_RESOURCES:
+                return Resource.class;
+
+            case BackendPipes.Names.NOTE:
+                return Note.class;
+
+            case BackendPipes.Names.OPERATIONS:
+                return Operation.class;
+
+            case BackendPipes.Names.PERSONA:
+                return Persona.class;
+
+            case BackendPipes.Names.TRIGGERS:
+                return Trigger.class;
+
+            default:
+                throw new IllegalArgumentException(String.format("Pipe [%s] is not known.", pipeName));
+        }
+    }
+
+    private static boolean isPipeValidated(String pipeName) {
+        // Inventory and triggers change rarely, so it is worth to read them conditionally.
+        switch (pipeName) {
+            case BackendPipes.Names.ENVIRONMENTS:
+            case BackendPipes.Names.FEEDS:
+            case BackendPipes.Names.FEED_METRICS:
+            case BackendPipes.Names.FEED_RESOURCES:
+            case BackendPipes.Names.FEED_CHILD_RESOURCES:
+            case BackendPipes.Names.METRICS:
+            case BackendPipes.Names.OPERATIONS:
+            case BackendPipes.Names.TRIGGERS:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPipeSnapshotted(String pipeName) {
+        // Inventory is worth showing at once on start, even if it is not fresh.
+        switch (pipeName) {
+            case BackendPipes.Names.ENVIRONMENTS:
+            case BackendPipes.Names.FEEDS:
+            case BackendPipes.Names.FEED_METRICS:
+            case BackendPipes.Names.FEED_RESOURCES:
+            case BackendPipes.Names.FEED_CHILD_RESOURCES:
+            case BackendPipes.Names.METRICS:
+            case BackendPipes.Names.OPERATIONS:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPipeStreamed(String pipeName) {
+        // Feed resources are large enough to be worth parsing while transferred.
+        // Alerts are read in bounded pages, child resources are read together with metrics and operations.
+        switch (pipeName) {
+            case BackendPipes.Names.FEED_RESOURCES:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPipeBucketed(String pipeName) {
+        switch (pipeName) {
+            case BackendPipes.Names.METRIC_DATA_AVAILABILITY:
+            case BackendPipes.Names.METRIC_DATA_COUNTER:
+            case BackendPipes.Names.METRIC_DATA_GAUGE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static String getPipeSeriesValue(String pipeName) {
+        switch (pipeName) {
+            case BackendPipes.Names.METRIC_DATA_AVAILABILITY:
+                return BackendSeriesParser.Values.UPTIME_RATIO;
+
+            default:
+                return BackendSeriesParser.Values.AVERAGE;
+        }
+    }
+
+    private static AuthzModule getAuthorizationModule() {
         return ModuleKeeper.modules.get("hawkular");
     }
 
-    private PipeModule getPersonnelModule(Persona persona) {
-        return new BackendPersonnel(persona);
+    private static void configureBucketsPipe(String pipeName, URL pipeUrl, List<PipeModule> pipeModules) {
+        // Metric data is delivered as a single series, it does not fit pipes made for lists.
+        pipesBucketsRunners.put(pipeName, new BackendBucketsRunner(
+                new BackendRunner<MetricSeries>(pipeUrl, pipeModules, null),
+                new BackendSeriesParser(getPipeSeriesValue(pipeName)), pipeUrl, pipesPersonnel));
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> void configurePipe(String pipeName, URL pipeUrl, List<PipeModule> pipeModules, Class<T> pipeClass) {
-        PipeConfiguration pipeConfiguration = PipeManager.config(pipeName, RestfulPipeConfiguration.class)
-                .withUrl(pipeUrl);
+    private static <T> void configurePipe(String pipeName, URL pipeUrl, List<PipeModule> pipeModules,
+                                          Class<T> pipeClass, boolean pipeValidated, boolean pipeSnapshotted) {
+        PipeHandler<T> pipeHandler;
+        ResponseParser<T> pipeParser;
+
+        BackendInventoryRunner<T> inventoryRunner = null;
+
+        if (pipeValidated && pipeSnapshotted) {
+            // Responses are kept by the snapshot, validators keep only their tags.
+            inventoryRunner = new BackendInventoryRunner<>(
+                    new BackendRunner<T>(pipeUrl, pipeModules, pipesSnapshotValidators), pipeUrl, pipesPersonnel);
+
+            pipeHandler = inventoryRunner;
+            pipeParser = new BackendParser<>();
+
+            pipesInventoryRunners.put(pipeName, inventoryRunner);
+        } else if (pipeValidated) {
+            BackendRunner<T> validatedRunner = new BackendRunner<>(pipeUrl, pipeModules, pipesValidators);
+
+            pipeHandler = validatedRunner;
+            pipeParser = new BackendParser<>();
+
+            pipesValidatedRunners.put(pipeName, validatedRunner);
+        } else {
+            pipeHandler = new BackendRunner<>(pipeUrl, pipeModules, null);
+            pipeParser = new GsonResponseParser<>();
+        }
+
+        RestfulPipeConfiguration pipeConfiguration = PipeManager.config(pipeName, RestfulPipeConfiguration.class)
+                .withUrl(pipeUrl)
+                .pipeHandler(pipeHandler)
+                .responseParser(pipeParser);
 
         for (PipeModule pipeModule : pipeModules) {
             pipeConfiguration.module(pipeModule);
         }
 
-        pipeConfiguration.forClass(pipeClass);
+        if (isPipeStreamed(pipeName)) {
+            pipesStreamers.put(pipeName, new BackendStreamer<>(
+                    new BackendRunner<T>(pipeUrl, pipeModules, null), inventoryRunner, pipeClass));
+        }
+
+        // RestfulPipeConfiguration.forClass ignores configured handlers, the adapter is created manually instead.
+        Pipe<T> pipe = new RestAdapter<>(pipeClass, pipeUrl, pipeConfiguration);
+
+        for (OnPipeCreatedListener pipeListener : pipeConfiguration.getOnPipeCreatedListeners()) {
+            pipeListener.onPipeCreated(pipeConfiguration, pipe);
+        }
+
+        pipesReaders.put(pipeName, new BackendReader<>(pipe, pipeHandler, pipeParser, pipeClass));
     }
 
     public void authorize(@NonNull Activity activity, @NonNull Callback<String> callback) {
@@ -179,17 +427,63 @@ public final class BackendClient {
         }
     }
 
-    public void getAlerts(@NonNull Date startTime, @NonNull Date finishTime, @NonNull List<Trigger> triggers,
+    /**
+     * Reads a page of alerts, starting from the latest ones.
+     * <p/>
+     * Pages are stable only if the same time range is used to read all of them.
+     */
+    public void getAlerts(@NonNull Date startTime, @NonNull Date finishTime, @NonNull Set<AlertStatus> statuses,
+                          @NonNull List<Trigger> triggers, @IntRange(from = 0) int page,
+                          @IntRange(from = 1) int pageSize, @NonNull Callback<List<Alert>> callback) {
+        URI uri = getAlertsUriBuilder(startTime, finishTime, triggers)
+                .parameter(BackendPipes.Parameters.STATUSES, getStatusNames(statuses))
+                .parameter(BackendPipes.Parameters.PAGE, page)
+                .parameter(BackendPipes.Parameters.PAGE_SIZE, pageSize)
+                .parameter(BackendPipes.Parameters.SORT, BackendPipes.Sorting.ALERT_TIME)
+                .parameter(BackendPipes.Parameters.ORDER, BackendPipes.Sorting.DESCENDING)
+                .build();
+
+        readPipe(BackendPipes.Names.ALERTS, uri, callback);
+    }
+
+    /**
+     * Reads alerts created or changed their status, for example acknowledged or resolved, since the time specified.
+     * <p/>
+     * Only the latest page of them is read, a full page means there might be more.
+     */
+    public void getAlerts(@NonNull Date startTime, @NonNull Date finishTime, @NonNull Date statusTime,
+                          @NonNull List<Trigger> triggers, @IntRange(from = 1) int pageSize,
                           @NonNull Callback<List<Alert>> callback) {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(BackendPipes.Parameters.START_TIME, String.valueOf(startTime.getTime()));
-        parameters.put(BackendPipes.Parameters.FINISH_TIME, String.valueOf(finishTime.getTime()));
+        URI uri = getAlertsUriBuilder(startTime, finishTime, triggers)
+                .parameter(BackendPipes.Parameters.START_STATUS_TIME, statusTime.getTime())
+                .parameter(BackendPipes.Parameters.PAGE, 0)
+                .parameter(BackendPipes.Parameters.PAGE_SIZE, pageSize)
+                .parameter(BackendPipes.Parameters.SORT, BackendPipes.Sorting.ALERT_TIME)
+                .parameter(BackendPipes.Parameters.ORDER, BackendPipes.Sorting.DESCENDING)
+                .build();
+
+        readPipe(BackendPipes.Names.ALERTS, uri, callback);
+    }
+
+    private BackendTemplate.Builder getAlertsUriBuilder(Date startTime, Date finishTime, List<Trigger> triggers) {
+        BackendTemplate.Builder uriBuilder = BackendPipes.Templates.ALERTS.expand()
+                .parameter(BackendPipes.Parameters.START_TIME, startTime.getTime())
+                .parameter(BackendPipes.Parameters.FINISH_TIME, finishTime.getTime());
         if (triggers != null) {
-            parameters.put(BackendPipes.Parameters.TRIGGERS, Uris.getParameter(getTriggerIds(triggers)));
+            uriBuilder.parameter(BackendPipes.Parameters.TRIGGERS, getTriggerIds(triggers));
         }
-        URI uri = Uris.getUri(BackendPipes.Paths.ALERTS, parameters);
 
-        readPipe(BackendPipes.Names.ALERTS, uri, callback);
+        return uriBuilder;
+    }
+
+    private List<String> getStatusNames(Set<AlertStatus> statuses) {
+        List<String> statusNames = new ArrayList<>(statuses.size());
+
+        for (AlertStatus status : statuses) {
+            statusNames.add(status.name());
+        }
+
+        return statusNames;
     }
 
     private List<String> getTriggerIds(List<Trigger> triggers) {
@@ -219,106 +513,354 @@ public final class BackendClient {
     }
 
     public void getEnvironments(@NonNull Callback<List<Environment>> callback) {
-        URI uri = Uris.getUri(BackendPipes.Paths.ENVIRONMENTS);
+        URI uri = BackendPipes.Templates.ENVIRONMENTS.expand().build();
 
         readPipe(BackendPipes.Names.ENVIRONMENTS, uri, callback);
     }
 
 
     public void getFeeds(@NonNull Callback<List<Feed>> callback) {
-        URI uri = Uris.getUri(BackendPipes.Paths.FEEDS);
+        URI uri = BackendPipes.Templates.FEEDS.expand().build();
 
         readPipe(BackendPipes.Names.FEEDS, uri, callback);
     }
 
     public void getOpreations(@NonNull Callback<List<Operation>> callback, Resource resource) {
-        URI uri = Uris.getUri(CanonicalPath.getByString(resource.getType().getPath())
-                .fix(BackendPipes.Paths.OPERATIONS));
+        readPipe(BackendPipes.Names.OPERATIONS, getOperationsUri(resource), callback);
+    }
 
-        readPipe(BackendPipes.Names.OPERATIONS, uri, callback);
+    private static URI getOperationsUri(Resource resource) {
+        return BackendPipes.Templates.OPERATIONS.expand(CanonicalPath.getByString(resource.getType().getPath()))
+                .build();
     }
 
     public void getResourcesFromFeed(@NonNull Callback<List<Resource>> callback, Feed feed) {
-        URI uri = Uris.getUri(CanonicalPath.getByString(feed.getPath()).fix(BackendPipes.Paths.FEED_RESOURCES));
+        URI uri = BackendPipes.Templates.FEED_RESOURCES.expand(CanonicalPath.getByString(feed.getPath())).build();
 
         readPipe(BackendPipes.Names.FEED_RESOURCES, uri, callback);
     }
 
 
     public void getRecResourcesFromFeed(@NonNull Callback<List<Resource>> callback, Resource resource) {
+        readPipe(BackendPipes.Names.FEED_CHILD_RESOURCES, getChildResourcesUri(resource), callback);
+    }
 
-            URI uri = Uris.getUri(CanonicalPath.getByString(resource.getPath()).
-                    fix(BackendPipes.Paths.FEED_CHILD_RESOURCES));
-
-        readPipe(BackendPipes.Names.FEED_CHILD_RESOURCES, uri, callback);
+    private static URI getChildResourcesUri(Resource resource) {
+        return BackendPipes.Templates.FEED_CHILD_RESOURCES.expand(CanonicalPath.getByString(resource.getPath()))
+                .build();
     }
 
 
     public void getMetricsFromFeed(@NonNull Callback<List<Metric>> callback, Resource resource) {
-        URI uri = Uris.getUri(CanonicalPath.getByString(resource.getPath()).
-                fix(BackendPipes.Paths.FEED_METRICS));
+        readPipe(BackendPipes.Names.FEED_METRICS, getFeedMetricsUri(resource), callback);
+    }
+
+    private static URI getFeedMetricsUri(Resource resource) {
+        return BackendPipes.Templates.FEED_METRICS.expand(CanonicalPath.getByString(resource.getPath()))
+                .build();
+    }
+
+    /**
+     * Reads child resources, metrics and operations of a resource.
+     * <p/>
+     * Reads are executed in parallel and delivered together. A failed read is delivered as an empty list,
+     * so children read successfully are shown anyway. The callback fails only if all reads fail.
+     * Prefetched results are used if available, see {@link #prefetchResourceChildren(List)}.
+     */
+    public void getResourceChildren(@NonNull Callback<ResourceChildren> callback, @NonNull Resource resource) {
+        final Future<ResourceChildren> prefetch = childrenPrefetcher.take(resource.getPath());
+
+        final Callable<List<Resource>> resourcesRead = BackendClient.<Resource>getReader(
+                BackendPipes.Names.FEED_CHILD_RESOURCES).newRead(getChildResourcesUri(resource));
+        final Callable<List<Metric>> metricsRead = BackendClient.<Metric>getReader(
+                BackendPipes.Names.FEED_METRICS).newRead(getFeedMetricsUri(resource));
+        final Callable<List<Operation>> operationsRead = BackendClient.<Operation>getReader(
+                BackendPipes.Names.OPERATIONS).newRead(getOperationsUri(resource));
+
+        final BackendReceiver<ResourceChildren> receiver = new BackendReceiver<>(activity, fragment, callback);
+
+        // Joining waits on a thread of its own, reads themselves do not wait for each other to start.
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                ResourceChildren prefetchedChildren = getPrefetchedChildren(prefetch);
+
+                if (prefetchedChildren != null) {
+                    receiver.post(prefetchedChildren);
+                    return;
+                }
+
+                ExecutorService executor = BackendHttp.getExecutor();
+
+                Future<List<Resource>> resources = executor.submit(resourcesRead);
+                Future<List<Metric>> metrics = executor.submit(metricsRead);
+                Future<List<Operation>> operations = executor.submit(operationsRead);
+
+                List<Exception> failures = new ArrayList<>();
+
+                try {
+                    ResourceChildren children = new ResourceChildren(getChildren(resources, failures),
+                            getChildren(metrics, failures), getChildren(operations, failures));
+
+                    if (failures.size() == Defaults.CHILDREN_READS) {
+                        receiver.post(failures.get(0));
+                    } else {
+                        receiver.post(children);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    receiver.post(e);
+                } finally {
+                    resources.cancel(true);
+                    metrics.cancel(true);
+                    operations.cancel(true);
+                }
+            }
+        });
+    }
+
+    private static <T> List<T> getChildren(Future<List<T>> children, List<Exception> failures)
+            throws InterruptedException {
+        try {
+            return children.get();
+        } catch (ExecutionException e) {
+            Exception failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
 
-        readPipe(BackendPipes.Names.FEED_METRICS, uri, callback);
+            Timber.d(failure, "Resource children reading failed.");
+
+            failures.add(failure);
+
+            return new ArrayList<>();
+        }
+    }
+
+    private static ResourceChildren getPrefetchedChildren(Future<ResourceChildren> prefetch) {
+        if (prefetch == null) {
+            return null;
+        }
+
+        try {
+            return prefetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (ExecutionException e) {
+            Timber.d(e.getCause(), "Resource children prefetching failed.");
+
+            return null;
+        }
+    }
+
+    /**
+     * Prefetches child resources, metrics and operations of resources in the background.
+     * <p/>
+     * Children of prefetched resources are prefetched as well, up to a limited depth.
+     */
+    public void prefetchResourceChildren(@NonNull List<Resource> resources) {
+        prefetchResourceChildren(resources, Defaults.PREFETCH_DEPTH, childrenPrefetcher.getGeneration());
+    }
+
+    private static void prefetchResourceChildren(List<Resource> resources, final int depth, final int generation) {
+        for (final Resource resource : resources) {
+            childrenPrefetcher.prefetch(resource.getPath(), new Callable<ResourceChildren>() {
+                @Override
+                public ResourceChildren call() {
+                    ResourceChildren children = new ResourceChildren(
+                            BackendClient.<Resource>getReader(BackendPipes.Names.FEED_CHILD_RESOURCES)
+                                    .read(getChildResourcesUri(resource)),
+                            BackendClient.<Metric>getReader(BackendPipes.Names.FEED_METRICS)
+                                    .read(getFeedMetricsUri(resource)),
+                            BackendClient.<Operation>getReader(BackendPipes.Names.OPERATIONS)
+                                    .read(getOperationsUri(resource)));
+
+                    // Nested prefetches are dropped if the backend was configured again in the meantime.
+                    if (depth > 1) {
+                        prefetchResourceChildren(children.getResources(), depth - 1, generation);
+                    }
+
+                    return children;
+                }
+            }, generation);
+        }
     }
 
 
     public void getMetrics(@NonNull Environment environment, @NonNull Resource resource,
                            @NonNull Callback<List<Metric>> callback) {
-        URI uri = Uris.getUri(CanonicalPath.getByString(resource.getPath()).
-                fix(BackendPipes.Paths.METRICS));
+        URI uri = BackendPipes.Templates.METRICS.expand(CanonicalPath.getByString(resource.getPath())).build();
         readPipe(BackendPipes.Names.METRICS, uri, callback);
     }
 
+    /**
+     * Reads metrics from the backend, skipping the inventory snapshot unless the backend cannot be reached.
+     * Meant for refreshes requested by the user.
+     */
+    public void refreshMetrics(@NonNull Environment environment, @NonNull Resource resource,
+                               @NonNull Callback<List<Metric>> callback) {
+        URI uri = BackendPipes.Templates.METRICS.expand(CanonicalPath.getByString(resource.getPath())).build();
+        refreshPipe(BackendPipes.Names.METRICS, uri, callback);
+    }
+
     public void getMetricData(@NonNull Metric metric, long bucket,
-                                          @NonNull Date startTime, @NonNull Date finishTime,
-                                          @NonNull Callback<List<MetricBucket>> callback) {
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(BackendPipes.Parameters.START, String.valueOf(startTime.getTime()));
-        parameters.put(BackendPipes.Parameters.FINISH, String.valueOf(finishTime.getTime()));
-        parameters.put(BackendPipes.Parameters.BUCKETS, String.valueOf(bucket));
-
-        String path;
+                              @NonNull Date startTime, @NonNull Date finishTime,
+                              @NonNull Callback<MetricSeries> callback) {
+        BackendTemplate template;
         String name;
+        String percentiles = null;
 
         if (metric.getConfiguration().getType()== MetricType.AVAILABILITY) {
-            path = BackendPipes.Paths.METRIC_DATA_AVAILABILITY;
+            template = BackendPipes.Templates.METRIC_DATA_AVAILABILITY;
             name = BackendPipes.Names.METRIC_DATA_AVAILABILITY;
         } else if (metric.getConfiguration().getType()== MetricType.COUNTER) {
-            path = BackendPipes.Paths.METRIC_DATA_COUNTER;
+            template = BackendPipes.Templates.METRIC_DATA_COUNTER;
             name = BackendPipes.Names.METRIC_DATA_COUNTER;
         } else {
-            path = BackendPipes.Paths.METRIC_DATA_GAUGE;
+            template = BackendPipes.Templates.METRIC_DATA_GAUGE;
             name = BackendPipes.Names.METRIC_DATA_GAUGE;
+            percentiles = String.valueOf(MetricSeries.PERCENTILE);
+        }
+
+        BackendTemplate.Builder uriBuilder = template.expand(metric.getId())
+                .parameter(BackendPipes.Parameters.START, startTime.getTime())
+                .parameter(BackendPipes.Parameters.FINISH, finishTime.getTime())
+                .parameter(BackendPipes.Parameters.BUCKETS, bucket);
+
+        // Gauge buckets carry percentiles only if they are requested.
+        if (percentiles != null) {
+            uriBuilder.parameter(BackendPipes.Parameters.PERCENTILES, percentiles);
+        }
+
+        getBucketsRunner(name).read(uriBuilder.build(), activity, fragment, callback);
+    }
+
+    /**
+     * Reads data of multiple metrics using a single request.
+     * <p/>
+     * Each callback receives data of the metric at the same position. Buckets are not cached,
+     * the request is meant to replace a burst of single metric reads, like a dashboard refresh.
+     */
+    public void getMetricData(@NonNull List<Metric> metrics, long bucket,
+                              @NonNull Date startTime, @NonNull Date finishTime,
+                              @NonNull List<Callback<MetricSeries>> callbacks) {
+        if (metrics.size() != callbacks.size()) {
+            throw new IllegalArgumentException("Metrics and callbacks do not match.");
         }
 
-        URI uri = Uris.getUri(String.format(path, Uris.getEncodedParameter(metric.getId())), parameters);
+        if (metrics.isEmpty()) {
+            return;
+        }
 
-        readPipe(name, uri, callback);
+        getBatcher().read(new ArrayList<>(metrics), bucket, startTime.getTime(), finishTime.getTime(),
+                callbacks, activity, fragment);
     }
 
     public void getPersona(@NonNull Callback<List<Persona>> callback) {
-        URI uri = Uris.getUri(BackendPipes.Paths.PERSONA);
+        URI uri = BackendPipes.Templates.PERSONA.expand().build();
 
         readPipe(BackendPipes.Names.PERSONA, uri, callback);
     }
 
     public void getTriggers(@NonNull Callback<List<Trigger>> callback) {
-        URI uri = Uris.getUri(BackendPipes.Paths.TRIGGERS);
+        URI uri = BackendPipes.Templates.TRIGGERS.expand().build();
 
         readPipe(BackendPipes.Names.TRIGGERS, uri, callback);
     }
 
+    /**
+     * Reads triggers from the backend, skipping the disk cache. Meant for refreshes requested by the user.
+     */
+    public void refreshTriggers(@NonNull Callback<List<Trigger>> callback) {
+        URI uri = BackendPipes.Templates.TRIGGERS.expand().build();
+
+        refreshPipe(BackendPipes.Names.TRIGGERS, uri, callback);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> void readPipe(String pipeName, URI uri, Callback<List<T>> callback) {
+        if (callback instanceof BackendChunkCallback) {
+            BackendStreamer<T> streamer = getStreamer(pipeName);
+
+            if (streamer != null) {
+                streamer.read(uri, activity, fragment, (BackendChunkCallback<T>) callback);
+                return;
+            }
+        }
+
         getPipe(pipeName).read(getFilter(uri), callback);
     }
 
+    private <T> void refreshPipe(String pipeName, URI uri, Callback<List<T>> callback) {
+        BackendInventoryRunner<?> inventoryRunner = getInventoryRunner(pipeName);
+
+        if (inventoryRunner != null) {
+            inventoryRunner.skipSnapshot(uri);
+        } else {
+            BackendRunner<?> validatedRunner = getValidatedRunner(pipeName);
+
+            if (validatedRunner != null) {
+                validatedRunner.skipCache(uri);
+            }
+        }
+
+        readPipe(pipeName, uri, callback);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> void savePipe(String pipeName, Object object, Callback<List<T>> callback) {
         getPipe(pipeName).save(object, callback);
     }
 
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> BackendStreamer<T> getStreamer(String pipeName) {
+        configurePipe(pipeName);
+
+        return (BackendStreamer<T>) pipesStreamers.get(pipeName);
+    }
+
+    private static synchronized BackendInventoryRunner<?> getInventoryRunner(String pipeName) {
+        configurePipe(pipeName);
+
+        return pipesInventoryRunners.get(pipeName);
+    }
+
+    private static synchronized BackendRunner<?> getValidatedRunner(String pipeName) {
+        configurePipe(pipeName);
+
+        return pipesValidatedRunners.get(pipeName);
+    }
+
+    private static synchronized BackendBucketsRunner getBucketsRunner(String pipeName) {
+        configurePipe(pipeName);
+
+        return pipesBucketsRunners.get(pipeName);
+    }
+
+    private static synchronized BackendBatcher getBatcher() {
+        if (pipesBackendUrl == null) {
+            throw new IllegalStateException("Backend communication is not configured.");
+        }
+
+        if (pipesBatcher == null) {
+            URL pipeUrl = Urls.getUrl(pipesBackendUrl, BackendPipes.Paths.ROOT);
+
+            pipesBatcher = new BackendBatcher(new BackendRunner<MetricSeries>(pipeUrl, getPipeModules(), null));
+        }
+
+        return pipesBatcher;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> BackendReader<T> getReader(String pipeName) {
+        configurePipe(pipeName);
+
+        return (BackendReader<T>) pipesReaders.get(pipeName);
+    }
+
     private LoaderPipe getPipe(String pipeName) {
+        configurePipe(pipeName);
+
         if (activity != null) {
             return PipeManager.getPipe(pipeName, activity);
         } else {
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Backend in-flight reads.
+ * <p/>
+ * Coalesces identical reads running at the same time. The first caller executes a read,
+ * callers coming while it is running wait for it and receive the same result or failure.
+ * Nothing is kept once a read is finished, so later calls always read again.
+ */
+final class BackendFlights<T> {
+    private final Map<String, FutureTask<T>> flights = new HashMap<>();
+
+    @NonNull
+    T execute(@NonNull String key, @NonNull Callable<T> read) {
+        FutureTask<T> flight;
+        boolean flightStarted = false;
+
+        synchronized (flights) {
+            flight = flights.get(key);
+
+            if (flight == null) {
+                flight = new FutureTask<>(read);
+                flights.put(key, flight);
+
+                flightStarted = true;
+            }
+        }
+
+        if (flightStarted) {
+            try {
+                flight.run();
+            } finally {
+                synchronized (flights) {
+                    flights.remove(key);
+                }
+            }
+        }
+
+        return getResult(flight);
+    }
+
+    private T getResult(FutureTask<T> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
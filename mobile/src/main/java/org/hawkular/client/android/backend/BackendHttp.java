@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Response;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import okio.ByteString;
+import timber.log.Timber;
+
+/**
+ * Backend HTTP engine.
+ * <p/>
+ * Holds the application-scoped {@link com.squareup.okhttp.OkHttpClient} shared by all backend
+ * {@link org.jboss.aerogear.android.pipe.Pipe} instances and the command gateway web socket.
+ * Sharing a single client means sharing its connection pool, so requests to the same Hawkular host
+ * reuse kept-alive connections and TLS sessions instead of handshaking over and over again.
+ * <p/>
+ * Responses are stored in a bounded disk cache once it is set up, see {@link #setUpCache(Context)}.
+ * Cached responses vary by tenant. Each account gets a cache directory of its own, named by a hash of the user,
+ * see {@link #setUpCacheAccount(String)}. Nothing about the account is sent to the backend for that.
+ * <p/>
+ * Blocking reads executed outside of AeroGear loaders use a shared executor, see {@link #getExecutor()}.
+ */
+public final class BackendHttp {
+    private BackendHttp() {
+    }
+
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int CONNECTIONS = 5;
+        public static final long CONNECTION_KEEP_ALIVE = TimeUnit.MINUTES.toMillis(5);
+
+        public static final long TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+        public static final String CACHE_DIRECTORY = "backend";
+        public static final long CACHE_SIZE = 10 * 1024 * 1024;
+    }
+
+    private static final class CacheVaryInterceptor implements Interceptor {
+        // Resources with the same URL differ between tenants, accounts are kept apart by cache directories.
+        private static final String VARY = BackendPipes.Headers.TENANT;
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+
+            return response.newBuilder()
+                    .header(BackendPipes.Headers.VARY, getVary(response.header(BackendPipes.Headers.VARY)))
+                    .build();
+        }
+
+        private String getVary(String responseVary) {
+            if (responseVary == null) {
+                return VARY;
+            }
+
+            return String.format("%s, %s", responseVary, VARY);
+        }
+    }
+
+    private static OkHttpClient client;
+    private static ExecutorService executor;
+
+    private static File cacheDirectory;
+    private static String cacheAccount;
+
+    @NonNull
+    public static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = buildClient();
+        }
+
+        return client;
+    }
+
+    /**
+     * Provides an executor for blocking backend reads.
+     * <p/>
+     * The executor is bounded by the count of pooled connections, all of them going to the same Hawkular host.
+     * Reads beyond that are queued instead of waiting for a free connection on threads of their own.
+     */
+    @NonNull
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = buildExecutor();
+        }
+
+        return executor;
+    }
+
+    /**
+     * Prepares the disk cache. Responses are cached once the account is known, see {@link #setUpCacheAccount(String)}.
+     */
+    public static synchronized void setUpCache(@NonNull Context context) {
+        if (cacheDirectory != null) {
+            return;
+        }
+
+        cacheDirectory = new File(context.getCacheDir(), Defaults.CACHE_DIRECTORY);
+    }
+
+    /**
+     * Switches the disk cache to a directory of the account user, responses of other accounts are not seen.
+     */
+    public static synchronized void setUpCacheAccount(@NonNull String user) {
+        if ((cacheDirectory == null) || user.equals(cacheAccount)) {
+            return;
+        }
+
+        cacheAccount = user;
+
+        // Directory names are listed by the system, so they do not reveal users.
+        String accountDirectory = ByteString.encodeUtf8(user).sha256().hex();
+
+        getClient().setCache(new Cache(new File(cacheDirectory, accountDirectory), Defaults.CACHE_SIZE));
+    }
+
+    /**
+     * Removes all cached responses, for example when the account is deleted.
+     */
+    public static void evictCache() {
+        final Cache cache = getClient().getCache();
+
+        if (cache == null) {
+            return;
+        }
+
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cache.evictAll();
+                } catch (IOException e) {
+                    Timber.d(e, "Cache eviction failed.");
+                }
+            }
+        });
+    }
+
+    private static OkHttpClient buildClient() {
+        OkHttpClient client = new OkHttpClient();
+
+        client.setConnectionPool(new ConnectionPool(Defaults.CONNECTIONS, Defaults.CONNECTION_KEEP_ALIVE));
+        client.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+
+        client.setConnectTimeout(Defaults.TIMEOUT, TimeUnit.MILLISECONDS);
+        client.setReadTimeout(Defaults.TIMEOUT, TimeUnit.MILLISECONDS);
+        client.setWriteTimeout(Defaults.TIMEOUT, TimeUnit.MILLISECONDS);
+
+        client.networkInterceptors().add(new CacheVaryInterceptor());
+
+        return client;
+    }
+
+    private static ExecutorService buildExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Defaults.CONNECTIONS, Defaults.CONNECTIONS,
+                Defaults.CONNECTION_KEEP_ALIVE, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+}
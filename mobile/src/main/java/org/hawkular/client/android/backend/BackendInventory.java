@@ -0,0 +1,419 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import timber.log.Timber;
+
+/**
+ * Backend inventory snapshot.
+ * <p/>
+ * Keeps inventory read from the backend in memory and in a file, so it is available on the next start
+ * without waiting for the network and even without it. The file is loaded in the background as soon
+ * as the snapshot is set up, see {@link #setUpSnapshot(Context)}.
+ * <p/>
+ * Inventory items are stored once per canonical path, lists are stored per request as canonical paths
+ * of their items. Lists read again are compared item by item, the file is written only if something changed.
+ * Lists streamed from the backend are compared while they are read, see {@link ListCollector}.
+ */
+public final class BackendInventory {
+    private BackendInventory() {
+    }
+
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int LISTS = 512;
+        public static final int RESPONSES = 32;
+
+        public static final String FILE = "inventory.json";
+        public static final String FILE_CHARSET = "UTF-8";
+
+        // Lists usually change in bunches, while a resource is deployed for example.
+        public static final long WRITE_DELAY = TimeUnit.SECONDS.toMillis(5);
+    }
+
+    private static final class Fields {
+        private Fields() {
+        }
+
+        public static final String PATH = "path";
+
+        public static final String LISTS = "lists";
+        public static final String ITEMS = "items";
+    }
+
+    private static final class Lists extends LinkedHashMap<String, List<String>> {
+        Lists() {
+            super(Defaults.LISTS, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > Defaults.LISTS;
+        }
+    }
+
+    private static final Lists lists = new Lists();
+    private static final Map<String, JsonElement> items = new HashMap<>();
+
+    // Same responses are returned for unchanged lists, so parsed results can be reused.
+    private static final LruCache<String, HeaderAndBody> responses = new LruCache<>(Defaults.RESPONSES);
+
+    private static final Handler writeHandler = new Handler(Looper.getMainLooper());
+    private static final Object writeLock = new Object();
+
+    private static File file;
+    private static boolean loaded;
+    private static boolean writeScheduled;
+
+    public static synchronized void setUpSnapshot(@NonNull Context context) {
+        if (file != null) {
+            return;
+        }
+
+        file = new File(context.getFilesDir(), Defaults.FILE);
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Removes the snapshot from memory and from the file, for example when the account is deleted.
+     */
+    public static synchronized void clearSnapshot() {
+        // Nothing should be loaded from the file once it is removed.
+        loaded = true;
+
+        lists.clear();
+        items.clear();
+        responses.evictAll();
+
+        final File file = BackendInventory.file;
+
+        if (file == null) {
+            return;
+        }
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (writeLock) {
+                    if (file.exists() && !file.delete()) {
+                        Timber.d("Inventory snapshot removing failed.");
+                    }
+                }
+            }
+        });
+    }
+
+    @Nullable
+    static synchronized JsonArray getItems(@NonNull String key) {
+        load();
+
+        List<String> listPaths = lists.get(key);
+
+        if (listPaths == null) {
+            return null;
+        }
+
+        JsonArray listItems = new JsonArray();
+
+        for (String path : listPaths) {
+            listItems.add(items.get(path));
+        }
+
+        return listItems;
+    }
+
+    @Nullable
+    static synchronized HeaderAndBody getResponse(@NonNull String key) {
+        HeaderAndBody response = responses.get(key);
+
+        if (response != null) {
+            return response;
+        }
+
+        JsonArray listItems = getItems(key);
+
+        if (listItems == null) {
+            return null;
+        }
+
+        response = new HeaderAndBody(getBytes(listItems.toString()), new HashMap<String, Object>());
+
+        responses.put(key, response);
+
+        return response;
+    }
+
+    static void putItems(@NonNull String key, @NonNull JsonArray listItems) {
+        ListCollector listCollector = new ListCollector(key);
+
+        for (JsonElement item : listItems) {
+            listCollector.add(item);
+        }
+
+        listCollector.put();
+    }
+
+    private static synchronized boolean isItemStored(String path, JsonElement item) {
+        load();
+
+        return item.equals(items.get(path));
+    }
+
+    private static synchronized void putList(String key, List<String> listPaths,
+                                             Map<String, JsonElement> changedItems) {
+        load();
+
+        for (String path : listPaths) {
+            // Unchanged items could be removed by a write of the snapshot while the list was read.
+            if (!changedItems.containsKey(path) && !items.containsKey(path)) {
+                Timber.d("Inventory list [%s] is not complete anymore, skipping it.", key);
+                return;
+            }
+        }
+
+        items.putAll(changedItems);
+
+        boolean changed = !changedItems.isEmpty();
+
+        if (!listPaths.equals(lists.put(key, listPaths))) {
+            changed = true;
+        }
+
+        if (changed) {
+            // Items are shared between lists, any of them could change.
+            responses.evictAll();
+
+            scheduleWrite();
+        }
+    }
+
+    private static String getPath(String key, JsonElement item, int position) {
+        if (item.isJsonObject()) {
+            JsonElement path = item.getAsJsonObject().get(Fields.PATH);
+
+            if ((path != null) && path.isJsonPrimitive()) {
+                return path.getAsString();
+            }
+        }
+
+        // Items without canonical paths are not shared.
+        return String.format("%s %d", key, position);
+    }
+
+    /**
+     * Collects a list item by item, as it is read.
+     * <p/>
+     * Items equal to ones in the snapshot are not kept, only their canonical paths are,
+     * so a list read again holds only changed items until it is complete.
+     */
+    static final class ListCollector {
+        private final String key;
+        private final List<String> listPaths = new ArrayList<>();
+        private final Map<String, JsonElement> changedItems = new HashMap<>();
+
+        ListCollector(@NonNull String key) {
+            this.key = key;
+        }
+
+        void add(@NonNull JsonElement item) {
+            String path = getPath(key, item, listPaths.size());
+
+            if (!isItemStored(path, item)) {
+                changedItems.put(path, item);
+            }
+
+            listPaths.add(path);
+        }
+
+        void put() {
+            putList(key, listPaths, changedItems);
+        }
+    }
+
+    private static synchronized void load() {
+        if (loaded || (file == null)) {
+            return;
+        }
+
+        loaded = true;
+
+        if (!file.exists()) {
+            return;
+        }
+
+        try {
+            Reader fileReader = new InputStreamReader(new FileInputStream(file), Defaults.FILE_CHARSET);
+
+            try {
+                JsonObject snapshotObject = new JsonParser().parse(fileReader).getAsJsonObject();
+
+                for (Map.Entry<String, JsonElement> item : snapshotObject.getAsJsonObject(Fields.ITEMS).entrySet()) {
+                    items.put(item.getKey(), item.getValue());
+                }
+
+                for (Map.Entry<String, JsonElement> list : snapshotObject.getAsJsonObject(Fields.LISTS).entrySet()) {
+                    List<String> listPaths = new ArrayList<>();
+
+                    for (JsonElement path : list.getValue().getAsJsonArray()) {
+                        listPaths.add(path.getAsString());
+                    }
+
+                    lists.put(list.getKey(), listPaths);
+                }
+            } finally {
+                fileReader.close();
+            }
+        } catch (IOException | JsonParseException | IllegalStateException | NullPointerException e) {
+            Timber.d(e, "Inventory snapshot reading failed.");
+
+            items.clear();
+            lists.clear();
+        }
+    }
+
+    private static void scheduleWrite() {
+        if (writeScheduled || (file == null)) {
+            return;
+        }
+
+        writeScheduled = true;
+
+        writeHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        write();
+                    }
+                });
+            }
+        }, Defaults.WRITE_DELAY);
+    }
+
+    private static void write() {
+        synchronized (writeLock) {
+            JsonObject snapshotObject = getSnapshotObject();
+
+            File temporaryFile = new File(file.getPath() + ".tmp");
+
+            try {
+                Writer fileWriter = new OutputStreamWriter(
+                        new FileOutputStream(temporaryFile), Defaults.FILE_CHARSET);
+
+                try {
+                    new Gson().toJson(snapshotObject, fileWriter);
+                } finally {
+                    fileWriter.close();
+                }
+
+                // Renaming replaces the snapshot at once, so a broken write does not lose the previous one.
+                if (!temporaryFile.renameTo(file)) {
+                    Timber.d("Inventory snapshot replacing failed.");
+                }
+            } catch (IOException e) {
+                Timber.d(e, "Inventory snapshot writing failed.");
+            }
+        }
+    }
+
+    private static synchronized JsonObject getSnapshotObject() {
+        writeScheduled = false;
+
+        // Items are never changed in place, so sharing them with the written object is safe.
+        JsonObject listsObject = new JsonObject();
+        Set<String> listedPaths = new HashSet<>();
+
+        for (Map.Entry<String, List<String>> list : lists.entrySet()) {
+            JsonArray listArray = new JsonArray();
+
+            for (String path : list.getValue()) {
+                listArray.add(new JsonPrimitive(path));
+                listedPaths.add(path);
+            }
+
+            listsObject.add(list.getKey(), listArray);
+        }
+
+        // Items of lists evicted in the meantime are not necessary anymore.
+        items.keySet().retainAll(listedPaths);
+
+        JsonObject itemsObject = new JsonObject();
+
+        for (Map.Entry<String, JsonElement> item : items.entrySet()) {
+            itemsObject.add(item.getKey(), item.getValue());
+        }
+
+        JsonObject snapshotObject = new JsonObject();
+        snapshotObject.add(Fields.LISTS, listsObject);
+        snapshotObject.add(Fields.ITEMS, itemsObject);
+
+        return snapshotObject;
+    }
+
+    private static byte[] getBytes(String value) {
+        try {
+            return value.getBytes(Defaults.FILE_CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.core.ReadFilter;
+import org.jboss.aerogear.android.pipe.Pipe;
+import org.jboss.aerogear.android.pipe.PipeHandler;
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import timber.log.Timber;
+
+/**
+ * Backend inventory {@link org.jboss.aerogear.android.pipe.PipeHandler}.
+ * <p/>
+ * Returns inventory lists from the {@link BackendInventory} snapshot if they are there
+ * and refreshes them from the backend in the background, so the next read gets the fresh list.
+ * Lists not in the snapshot yet are read using another handler and stored.
+ * <p/>
+ * Background refreshes run on low priority threads with a bounded queue, the same way
+ * {@link BackendPrefetcher} reads do it, so they do not compete with reads the user is waiting for.
+ * <p/>
+ * Lists are refreshed conditionally, unmodified ones are not transferred and kept by the snapshot only,
+ * so {@link BackendValidators} of the handler should not keep responses.
+ * <p/>
+ * Lists refreshed by the user explicitly skip the snapshot, see {@link #skipSnapshot(URI)}.
+ * The snapshot is used for them only if the backend cannot be reached.
+ */
+final class BackendInventoryRunner<T> implements PipeHandler<T> {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final String CHARSET = "UTF-8";
+
+        public static final int REFRESHES = 512;
+        public static final long REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+        public static final int REFRESH_READS = 2;
+        public static final int REFRESH_READS_QUEUED = 32;
+        public static final long REFRESH_READS_KEEP_ALIVE = TimeUnit.SECONDS.toMillis(30);
+    }
+
+    private static final class RefreshThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                    runnable.run();
+                }
+            }, "Backend Inventory Refresh");
+        }
+    }
+
+    private static final ThreadPoolExecutor refreshExecutor = buildRefreshExecutor();
+
+    private final BackendRunner<T> runner;
+    private final URL baseUrl;
+    private final BackendPersonnel personnel;
+    private final LruCache<String, Long> refreshes = new LruCache<>(Defaults.REFRESHES);
+    private final Set<String> snapshotSkips = new HashSet<>();
+
+    BackendInventoryRunner(@NonNull BackendRunner<T> runner, @NonNull URL baseUrl,
+                           @NonNull BackendPersonnel personnel) {
+        this.runner = runner;
+        this.baseUrl = baseUrl;
+        this.personnel = personnel;
+    }
+
+    @Override
+    public HeaderAndBody onRawRead(Pipe<T> pipe, String id) {
+        return runner.onRawRead(pipe, id);
+    }
+
+    @Override
+    public HeaderAndBody onRawRead(Pipe<T> pipe) {
+        return runner.onRawRead(pipe);
+    }
+
+    @Override
+    public HeaderAndBody onRawReadWithFilter(ReadFilter filter, Pipe<T> pipe) {
+        if ((filter == null) || (filter.getLinkUri() == null)) {
+            return runner.onRawReadWithFilter(filter, pipe);
+        }
+
+        URI uri = filter.getLinkUri();
+        String key = getKey(uri);
+
+        if (isSnapshotSkipped(key)) {
+            return readSkippingSnapshot(uri, key);
+        }
+
+        HeaderAndBody snapshotResponse = BackendInventory.getResponse(key);
+
+        if (snapshotResponse != null) {
+            refresh(uri, key);
+
+            return snapshotResponse;
+        }
+
+        HeaderAndBody response = runner.onRawReadWithFilter(filter, pipe);
+
+        putItems(key, response);
+
+        return response;
+    }
+
+    /**
+     * Makes the next read of a list go to the backend instead of the snapshot.
+     */
+    void skipSnapshot(@NonNull URI uri) {
+        synchronized (snapshotSkips) {
+            snapshotSkips.add(getKey(uri));
+        }
+    }
+
+    private boolean isSnapshotSkipped(String key) {
+        synchronized (snapshotSkips) {
+            return snapshotSkips.remove(key);
+        }
+    }
+
+    private HeaderAndBody readSkippingSnapshot(URI uri, String key) {
+        synchronized (refreshes) {
+            refreshes.put(key, System.currentTimeMillis());
+        }
+
+        try {
+            HeaderAndBody response = runner.onModifiedRead(uri);
+
+            if (response == null) {
+                HeaderAndBody snapshotResponse = BackendInventory.getResponse(key);
+
+                if (snapshotResponse != null) {
+                    return snapshotResponse;
+                }
+
+                // The list was not modified, but the snapshot lost it in the meantime.
+                response = runner.onNetworkRead(uri);
+            }
+
+            putItems(key, response);
+
+            return response;
+        } catch (RuntimeException e) {
+            HeaderAndBody snapshotResponse = BackendInventory.getResponse(key);
+
+            if (snapshotResponse == null) {
+                throw e;
+            }
+
+            Timber.d(e, "Inventory refreshing failed, using the snapshot.");
+
+            return snapshotResponse;
+        }
+    }
+
+    /**
+     * Provides snapshot items of a list, refreshing it in the background.
+     */
+    @Nullable
+    JsonArray onSnapshotRead(@NonNull URI uri) {
+        String key = getKey(uri);
+
+        JsonArray items = BackendInventory.getItems(key);
+
+        if (items != null) {
+            refresh(uri, key);
+        }
+
+        return items;
+    }
+
+    /**
+     * Provides a collector of a list read from the backend, the list is stored once the collector is put.
+     */
+    @NonNull
+    BackendInventory.ListCollector onItemsRead(@NonNull URI uri) {
+        return new BackendInventory.ListCollector(getKey(uri));
+    }
+
+    private void refresh(final URI uri, final String key) {
+        long time = System.currentTimeMillis();
+
+        synchronized (refreshes) {
+            Long refreshTime = refreshes.get(key);
+
+            // Lists shown over and over again, while navigating back and forth, are not refreshed each time.
+            if ((refreshTime != null) && (time - refreshTime < Defaults.REFRESH_INTERVAL)) {
+                return;
+            }
+
+            refreshes.put(key, time);
+        }
+
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        HeaderAndBody response = runner.onModifiedRead(uri);
+
+                        // Unmodified lists are in the snapshot already.
+                        if (response != null) {
+                            putItems(key, response);
+                        }
+                    } catch (RuntimeException e) {
+                        Timber.d(e, "Inventory refreshing failed.");
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Dropped refreshes are tried again on the next read.
+            synchronized (refreshes) {
+                refreshes.remove(key);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor buildRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Defaults.REFRESH_READS, Defaults.REFRESH_READS,
+                Defaults.REFRESH_READS_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(Defaults.REFRESH_READS_QUEUED), new RefreshThreadFactory());
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private void putItems(String key, HeaderAndBody response) {
+        JsonArray items = getItems(response);
+
+        if (items != null) {
+            BackendInventory.putItems(key, items);
+        }
+    }
+
+    private JsonArray getItems(HeaderAndBody response) {
+        String body = getString(response.getBody());
+
+        // Empty lists are returned without content sometimes.
+        if (body.trim().isEmpty()) {
+            return new JsonArray();
+        }
+
+        try {
+            JsonElement items = new JsonParser().parse(body);
+
+            return items.isJsonArray() ? items.getAsJsonArray() : null;
+        } catch (RuntimeException e) {
+            Timber.d(e, "Inventory parsing failed.");
+
+            return null;
+        }
+    }
+
+    private String getKey(URI uri) {
+        return String.format("%s %s/%s", personnel.getPersona().getId(), baseUrl.toExternalForm(), uri);
+    }
+
+    private String getString(byte[] value) {
+        try {
+            return new String(value, Defaults.CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public HeaderAndBody onRawSave(String id, byte[] item) {
+        return runner.onRawSave(id, item);
+    }
+
+    @Override
+    public void onRemove(String id) {
+        runner.onRemove(id);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.aerogear.android.pipe.MarshallingConfig;
+import org.jboss.aerogear.android.pipe.ResponseParser;
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+import org.jboss.aerogear.android.pipe.rest.gson.GsonResponseParser;
+
+/**
+ * Backend {@link org.jboss.aerogear.android.pipe.ResponseParser}.
+ * <p/>
+ * Parses responses the same way the default parser does but remembers parsed results per response.
+ * Responses validated by {@link BackendValidators} are returned as the same objects,
+ * so {@code 304 Not Modified} answers reuse already parsed lists instead of parsing the payload again.
+ */
+final class BackendParser<T> implements ResponseParser<T> {
+    private final ResponseParser<T> parser;
+    private final Map<HeaderAndBody, List<T>> results;
+
+    BackendParser() {
+        this.parser = new GsonResponseParser<>();
+        this.results = new WeakHashMap<>();
+    }
+
+    @Override
+    public List<T> handleResponse(HeaderAndBody response, Class<T> responseType) {
+        List<T> result;
+
+        synchronized (results) {
+            result = results.get(response);
+        }
+
+        if (result == null) {
+            result = parser.handleResponse(response, responseType);
+
+            synchronized (results) {
+                results.put(response, result);
+            }
+        }
+
+        // Callers are free to modify results, the remembered one should stay intact.
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public MarshallingConfig getMarshallingConfig() {
+        return parser.getMarshallingConfig();
+    }
+}
@@ -32,15 +32,25 @@ import android.support.annotation.NonNull;
  * manipulations, especially setting proper HTTP headers to outgoing requests.
  */
 final class BackendPersonnel implements PipeModule {
-    private final Persona persona;
+    private volatile Persona persona;
 
     public BackendPersonnel(@NonNull Persona persona) {
         this.persona = persona;
     }
 
+    @NonNull
+    public Persona getPersona() {
+        return persona;
+    }
+
+    public void setPersona(@NonNull Persona persona) {
+        this.persona = persona;
+    }
+
     @Override
     public ModuleFields loadModule(URI uri, String method, byte[] contents) {
         ModuleFields fields = new ModuleFields();
+        Persona persona = this.persona;
 
         fields.addHeader(BackendPipes.Headers.PERSONA, persona.getId());
         fields.addHeader(BackendPipes.Headers.TENANT, persona.getId());
@@ -20,7 +20,7 @@ package org.hawkular.client.android.backend;
  * Backend {@link org.jboss.aerogear.android.pipe.Pipe} configuration constants.
  *
  * Contains common {@link org.jboss.aerogear.android.pipe.Pipe} parameters,
- * including names, relative backend paths, parameters and headers.
+ * including names, relative backend paths and their templates, parameters and headers.
  */
 final class BackendPipes {
     private BackendPipes() {
@@ -64,14 +64,36 @@ final class BackendPipes {
         public static final String FEED_RESOURCES = "inventory/traversal/f;{f}/type=r";
         public static final String FEED_CHILD_RESOURCES = "inventory/traversal/f;{f}/{r}/rl;isParentOf/type=r";
         public static final String METRICS = "inventory/traversal/e;{e}/{r}/rl;incorporates/type=m";
-        public static final String METRIC_DATA_AVAILABILITY= "metrics/availability/%s/data";
-        public static final String METRIC_DATA_COUNTER = "metrics/counters/%s/data";
-        public static final String METRIC_DATA_GAUGE = "metrics/gauges/%s/data";
+        public static final String METRIC_DATA_AVAILABILITY= "metrics/availability/{id}/data";
+        public static final String METRIC_DATA_COUNTER = "metrics/counters/{id}/data";
+        public static final String METRIC_DATA_GAUGE = "metrics/gauges/{id}/data";
+        public static final String METRIC_DATA_BATCH = "metrics/metrics/stats/query";
         public static final String OPERATIONS = "inventory/traversal/f;{f}/rt;{rt}/type=ot";
         public static final String PERSONA = "hawkular/metrics/tenants";
         public static final String TRIGGERS = "alerts/triggers";
     }
 
+    public static final class Templates {
+        private Templates() {
+        }
+
+        public static final BackendTemplate ALERTS = BackendTemplate.of(Paths.ALERTS);
+        public static final BackendTemplate ENVIRONMENTS = BackendTemplate.of(Paths.ENVIRONMENTS);
+        public static final BackendTemplate FEEDS = BackendTemplate.of(Paths.FEEDS);
+        public static final BackendTemplate FEED_METRICS = BackendTemplate.of(Paths.FEED_METRICS);
+        public static final BackendTemplate FEED_RESOURCES = BackendTemplate.of(Paths.FEED_RESOURCES);
+        public static final BackendTemplate FEED_CHILD_RESOURCES = BackendTemplate.of(Paths.FEED_CHILD_RESOURCES);
+        public static final BackendTemplate METRICS = BackendTemplate.of(Paths.METRICS);
+        public static final BackendTemplate METRIC_DATA_AVAILABILITY =
+                BackendTemplate.of(Paths.METRIC_DATA_AVAILABILITY);
+        public static final BackendTemplate METRIC_DATA_COUNTER = BackendTemplate.of(Paths.METRIC_DATA_COUNTER);
+        public static final BackendTemplate METRIC_DATA_GAUGE = BackendTemplate.of(Paths.METRIC_DATA_GAUGE);
+        public static final BackendTemplate METRIC_DATA_BATCH = BackendTemplate.of(Paths.METRIC_DATA_BATCH);
+        public static final BackendTemplate OPERATIONS = BackendTemplate.of(Paths.OPERATIONS);
+        public static final BackendTemplate PERSONA = BackendTemplate.of(Paths.PERSONA);
+        public static final BackendTemplate TRIGGERS = BackendTemplate.of(Paths.TRIGGERS);
+    }
+
     public static final class Parameters {
         private Parameters() {
         }
@@ -79,18 +101,43 @@ final class BackendPipes {
         public static final String START = "start";
         public static final String FINISH = "end";
         public static final String BUCKETS = "buckets";
+        public static final String BUCKET_DURATION = "bucketDuration";
+        public static final String PERCENTILES = "percentiles";
 
         public static final String START_TIME = "startTime";
         public static final String FINISH_TIME = "finishTime";
+        public static final String START_STATUS_TIME = "startStatusTime";
 
         public static final String STATUSES = "statuses";
         public static final String TRIGGERS = "triggerIds";
+
+        public static final String PAGE = "page";
+        public static final String PAGE_SIZE = "per_page";
+        public static final String SORT = "sort";
+        public static final String ORDER = "order";
+    }
+
+    public static final class Sorting {
+        private Sorting() {
+        }
+
+        public static final String ALERT_TIME = "ctime";
+
+        public static final String DESCENDING = "desc";
     }
 
     public static final class Headers {
         private Headers() {
         }
 
+        public static final String ACCEPT = "Accept";
+        public static final String CONTENT_TYPE = "Content-Type";
+        public static final String ETAG = "ETag";
+        public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+        public static final String IF_NONE_MATCH = "If-None-Match";
+        public static final String LAST_MODIFIED = "Last-Modified";
+        public static final String VARY = "Vary";
+
         public static final String PERSONA = "Hawkular-Persona";
         public static final String TENANT = "Hawkular-Tenant";
     }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+/**
+ * Backend speculative reads.
+ * <p/>
+ * Executes reads which are likely to be needed soon, in the background and with a bounded concurrency,
+ * so they do not compete with reads the user is waiting for. Reads beyond the queue capacity are dropped.
+ * <p/>
+ * Results are kept for a bounded count of keys and are handed out once, so they do not get stale for long.
+ * Reads not started yet are dropped when taken, reading again directly is faster than waiting for them.
+ * <p/>
+ * Clearing interrupts running reads and starts a new generation. Reads queued by prefetches of an earlier
+ * generation, like nested ones, are dropped, see {@link #getGeneration()}.
+ */
+final class BackendPrefetcher<T> {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int READS = 2;
+        public static final int READS_QUEUED = 32;
+        public static final long READS_KEEP_ALIVE = TimeUnit.SECONDS.toMillis(30);
+
+        public static final int RESULTS = 64;
+    }
+
+    private static final class PrefetchThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                    runnable.run();
+                }
+            }, "Backend Prefetch");
+        }
+    }
+
+    private static final class Prefetch<T> extends FutureTask<T> {
+        private volatile boolean started;
+
+        Prefetch(Callable<T> read) {
+            super(read);
+        }
+
+        @Override
+        public void run() {
+            started = true;
+
+            super.run();
+        }
+
+        boolean isStarted() {
+            return started;
+        }
+    }
+
+    private final LruCache<String, Prefetch<T>> prefetches = new LruCache<>(Defaults.RESULTS);
+    private final ThreadPoolExecutor executor;
+
+    private int generation;
+
+    BackendPrefetcher() {
+        executor = new ThreadPoolExecutor(Defaults.READS, Defaults.READS,
+                Defaults.READS_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(Defaults.READS_QUEUED), new PrefetchThreadFactory());
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    int getGeneration() {
+        synchronized (prefetches) {
+            return generation;
+        }
+    }
+
+    void prefetch(@NonNull String key, @NonNull Callable<T> read, int generation) {
+        Prefetch<T> prefetch;
+
+        synchronized (prefetches) {
+            if ((this.generation != generation) || (prefetches.get(key) != null)) {
+                return;
+            }
+
+            prefetch = new Prefetch<>(read);
+            prefetches.put(key, prefetch);
+        }
+
+        try {
+            executor.execute(prefetch);
+        } catch (RejectedExecutionException e) {
+            synchronized (prefetches) {
+                prefetches.remove(key);
+            }
+        }
+    }
+
+    @Nullable
+    Future<T> take(@NonNull String key) {
+        Prefetch<T> prefetch;
+
+        synchronized (prefetches) {
+            prefetch = prefetches.remove(key);
+        }
+
+        if (prefetch == null) {
+            return null;
+        }
+
+        if (!prefetch.isStarted()) {
+            prefetch.cancel(false);
+
+            return null;
+        }
+
+        return prefetch;
+    }
+
+    void clear() {
+        synchronized (prefetches) {
+            for (Prefetch<T> prefetch : prefetches.snapshot().values()) {
+                prefetch.cancel(true);
+            }
+
+            prefetches.evictAll();
+
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.jboss.aerogear.android.core.ReadFilter;
+import org.jboss.aerogear.android.pipe.Pipe;
+import org.jboss.aerogear.android.pipe.PipeHandler;
+import org.jboss.aerogear.android.pipe.ResponseParser;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+/**
+ * Backend blocking reader.
+ * <p/>
+ * Reads a {@link org.jboss.aerogear.android.pipe.Pipe} on the calling thread, using the same handler and parser
+ * the pipe uses itself. Allows to combine reads without going through AeroGear loaders one by one.
+ */
+final class BackendReader<T> {
+    private final Pipe<T> pipe;
+    private final PipeHandler<T> handler;
+    private final ResponseParser<T> parser;
+    private final Class<T> type;
+
+    BackendReader(@NonNull Pipe<T> pipe, @NonNull PipeHandler<T> handler, @NonNull ResponseParser<T> parser,
+                  @NonNull Class<T> type) {
+        this.pipe = pipe;
+        this.handler = handler;
+        this.parser = parser;
+        this.type = type;
+    }
+
+    @NonNull
+    @WorkerThread
+    List<T> read(@NonNull URI uri) {
+        ReadFilter filter = new ReadFilter();
+        filter.setLinkUri(uri);
+
+        return parser.handleResponse(handler.onRawReadWithFilter(filter, pipe), type);
+    }
+
+    @NonNull
+    Callable<List<T>> newRead(@NonNull final URI uri) {
+        return new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return read(uri);
+            }
+        };
+    }
+}
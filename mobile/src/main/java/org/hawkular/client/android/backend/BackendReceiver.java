@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import org.jboss.aerogear.android.core.Callback;
+import org.jboss.aerogear.android.pipe.callback.AbstractActivityCallback;
+import org.jboss.aerogear.android.pipe.callback.AbstractSupportFragmentCallback;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+/**
+ * Backend results receiver.
+ * <p/>
+ * Delivers results of reads executed outside of AeroGear loaders to a {@link org.jboss.aerogear.android.core.Callback}.
+ * Results are delivered on the main thread and only while the receiving activity or fragment is alive.
+ * Callbacks are bound to the activity or fragment the same way AeroGear does it.
+ */
+final class BackendReceiver<T> {
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Activity activity;
+    private final Fragment fragment;
+    private final Callback<T> callback;
+
+    BackendReceiver(@Nullable Activity activity, @Nullable Fragment fragment, @NonNull Callback<T> callback) {
+        this.activity = activity;
+        this.fragment = fragment;
+        this.callback = callback;
+
+        if (callback instanceof AbstractSupportFragmentCallback) {
+            ((AbstractSupportFragmentCallback) callback).setSupportFragment(fragment);
+        }
+
+        if (callback instanceof AbstractActivityCallback) {
+            ((AbstractActivityCallback) callback).setActivity(activity);
+        }
+    }
+
+    void post(final T result) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+    void post(final Exception e) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    void post(@NonNull final Runnable delivery) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (isAlive()) {
+                    delivery.run();
+                }
+            }
+        });
+    }
+
+    @MainThread
+    private boolean isAlive() {
+        if (fragment != null) {
+            return fragment.isAdded();
+        }
+
+        return !activity.isFinishing();
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.core.ReadFilter;
+import org.jboss.aerogear.android.pipe.Pipe;
+import org.jboss.aerogear.android.pipe.PipeHandler;
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+import org.jboss.aerogear.android.pipe.http.HttpException;
+import org.jboss.aerogear.android.pipe.module.ModuleFields;
+import org.jboss.aerogear.android.pipe.module.PipeModule;
+import org.jboss.aerogear.android.pipe.util.UrlUtils;
+
+import com.squareup.okhttp.CacheControl;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.HttpUrl;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Pair;
+
+import timber.log.Timber;
+
+/**
+ * Backend {@link org.jboss.aerogear.android.pipe.PipeHandler}.
+ * <p/>
+ * Replaces the default AeroGear runner, which opens a separate {@link java.net.HttpURLConnection}
+ * for every request, with requests executed by the shared {@link BackendHttp} client.
+ * Modules are applied the same way the default runner does it.
+ * <p/>
+ * Reads are sent as conditional requests if {@link BackendValidators} are provided.
+ * Such reads are also served from the {@link BackendHttp} disk cache when possible, even stale,
+ * and revalidated in the background, so the next read gets the fresh response.
+ * <p/>
+ * Reads refreshed by the user explicitly skip the disk cache, see {@link #skipCache(URI)}.
+ * <p/>
+ * Identical reads running at the same time are coalesced using {@link BackendFlights}.
+ */
+final class BackendRunner<T> implements PipeHandler<T> {
+    private static final class Methods {
+        private Methods() {
+        }
+
+        public static final String GET = "GET";
+        public static final String POST = "POST";
+        public static final String PUT = "PUT";
+        public static final String DELETE = "DELETE";
+    }
+
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int STALE = (int) TimeUnit.DAYS.toSeconds(1);
+    }
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private static final CacheControl CACHED = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale(Defaults.STALE, TimeUnit.SECONDS)
+            .build();
+
+    private final URL baseUrl;
+    private final List<PipeModule> modules;
+    private final BackendValidators validators;
+    private final Set<String> revalidations = new HashSet<>();
+    private final Set<String> cacheSkips = new HashSet<>();
+    private final BackendFlights<HeaderAndBody> flights = new BackendFlights<>();
+
+    BackendRunner(@NonNull URL baseUrl, @NonNull List<PipeModule> modules, @Nullable BackendValidators validators) {
+        this.baseUrl = baseUrl;
+        this.modules = modules;
+        this.validators = validators;
+    }
+
+    @Override
+    public HeaderAndBody onRawRead(Pipe<T> pipe, String id) {
+        ReadFilter filter = new ReadFilter();
+        filter.setLinkUri(URI.create(id));
+
+        return onRawReadWithFilter(filter, pipe);
+    }
+
+    @Override
+    public HeaderAndBody onRawRead(Pipe<T> pipe) {
+        return onRawReadWithFilter(new ReadFilter(), pipe);
+    }
+
+    @Override
+    public HeaderAndBody onRawReadWithFilter(ReadFilter filter, Pipe<T> pipe) {
+        final URI uri = getUri(filter);
+
+        if (isCacheSkipped(uri)) {
+            return onNetworkRead(uri);
+        }
+
+        // Identical reads, issued again after a configuration change for example, share a single request.
+        return flights.execute(getFlightKey(uri), new Callable<HeaderAndBody>() {
+            @Override
+            public HeaderAndBody call() {
+                return read(uri);
+            }
+        });
+    }
+
+    /**
+     * Makes the next read of a resource go to the backend instead of the disk cache.
+     */
+    void skipCache(@NonNull URI uri) {
+        synchronized (cacheSkips) {
+            cacheSkips.add(getFlightKey(uri));
+        }
+    }
+
+    private boolean isCacheSkipped(URI uri) {
+        synchronized (cacheSkips) {
+            return cacheSkips.remove(getFlightKey(uri));
+        }
+    }
+
+    private HeaderAndBody read(URI uri) {
+        try {
+            return execute(Methods.GET, uri, null);
+        } catch (HttpException e) {
+            if (handleError(e)) {
+                return execute(Methods.GET, uri, null);
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a resource leaving the response body unread, so it can be parsed while it is transferred.
+     * <p/>
+     * The caller is responsible for closing the response body.
+     */
+    @NonNull
+    Response onStreamedRead(@NonNull URI uri) throws IOException {
+        Response response = execute(getRequest(Methods.GET, uri, null));
+
+        if (response.isSuccessful()) {
+            return response;
+        }
+
+        HttpException e = getHttpException(response);
+
+        if (!handleError(e)) {
+            throw e;
+        }
+
+        response = execute(getRequest(Methods.GET, uri, null));
+
+        if (!response.isSuccessful()) {
+            throw getHttpException(response);
+        }
+
+        return response;
+    }
+
+    /**
+     * Reads a resource from the backend even if the disk cache has it, still conditionally if possible.
+     */
+    @NonNull
+    HeaderAndBody onNetworkRead(@NonNull URI uri) {
+        return readNetwork(uri, false);
+    }
+
+    /**
+     * Reads a resource from the backend the same way {@link #onNetworkRead(URI)} does it,
+     * but returns nothing if it was not modified and {@link BackendValidators} do not keep its response.
+     * Meant for callers keeping read responses on their own.
+     */
+    @Nullable
+    HeaderAndBody onModifiedRead(@NonNull URI uri) {
+        return readNetwork(uri, true);
+    }
+
+    private HeaderAndBody readNetwork(URI uri, boolean modifiedOnly) {
+        try {
+            return executeNetwork(uri, modifiedOnly);
+        } catch (HttpException e) {
+            if (handleError(e)) {
+                return executeNetwork(uri, modifiedOnly);
+            }
+
+            throw e;
+        }
+    }
+
+    private HeaderAndBody executeNetwork(URI uri, boolean modifiedOnly) {
+        Request request = getRequest(Methods.GET, uri, null).newBuilder()
+                .cacheControl(CacheControl.FORCE_NETWORK)
+                .build();
+
+        try {
+            if (!isValidated(request)) {
+                return getHeaderAndBody(execute(request));
+            }
+
+            return executeConditional(request, getRequestKey(request), modifiedOnly);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sends a query which reads data, but is sent as a {@code POST} request because of its size.
+     */
+    @NonNull
+    HeaderAndBody onRawQuery(@NonNull URI uri, @NonNull byte[] query) {
+        try {
+            return execute(Methods.POST, uri, query);
+        } catch (HttpException e) {
+            if (handleError(e)) {
+                return execute(Methods.POST, uri, query);
+            }
+
+            throw e;
+        }
+    }
+
+    @Override
+    public HeaderAndBody onRawSave(String id, byte[] item) {
+        if (TextUtils.isEmpty(id)) {
+            return execute(Methods.POST, URI.create(""), item);
+        } else {
+            return execute(Methods.PUT, URI.create(id), item);
+        }
+    }
+
+    @Override
+    public void onRemove(String id) {
+        execute(Methods.DELETE, URI.create(id), null);
+    }
+
+    private URI getUri(ReadFilter filter) {
+        if ((filter == null) || (filter.getLinkUri() == null)) {
+            return URI.create("");
+        }
+
+        return filter.getLinkUri();
+    }
+
+    private boolean handleError(HttpException e) {
+        for (PipeModule module : modules) {
+            if (module.handleError(e)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private HeaderAndBody execute(String method, URI uri, byte[] body) {
+        Request request = getRequest(method, uri, body);
+
+        try {
+            if (!isValidated(request)) {
+                return getHeaderAndBody(execute(request));
+            }
+
+            return executeValidated(request);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Response execute(Request request) throws IOException {
+        return BackendHttp.getClient().newCall(request).execute();
+    }
+
+    private HeaderAndBody executeValidated(Request request) throws IOException {
+        String validatorKey = getRequestKey(request);
+
+        if (BackendHttp.getClient().getCache() != null) {
+            Response cachedResponse = execute(request.newBuilder().cacheControl(CACHED).build());
+
+            if (cachedResponse.code() != HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
+                revalidate(request, validatorKey);
+
+                return getHeaderAndBody(validatorKey, cachedResponse);
+            }
+
+            cachedResponse.body().close();
+        }
+
+        return executeConditional(request, validatorKey, false);
+    }
+
+    private HeaderAndBody executeConditional(Request request, String validatorKey, boolean modifiedOnly)
+            throws IOException {
+        Request.Builder validatedRequestBuilder = request.newBuilder();
+        validators.validate(validatedRequestBuilder, validatorKey);
+
+        Response response = execute(validatedRequestBuilder.build());
+
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            response.body().close();
+
+            HeaderAndBody validatedResponse = validators.getResponse(validatorKey);
+
+            if (validatedResponse != null) {
+                return validatedResponse;
+            }
+
+            if (modifiedOnly) {
+                return null;
+            }
+
+            // The validated response was evicted in the meantime, the full one is necessary.
+            response = execute(request);
+        }
+
+        HeaderAndBody headerAndBody = getHeaderAndBody(response);
+
+        validators.putResponse(validatorKey, response, headerAndBody);
+
+        return headerAndBody;
+    }
+
+    private HeaderAndBody getHeaderAndBody(String validatorKey, Response cachedResponse) throws IOException {
+        HeaderAndBody validatedResponse = validators.getResponse(validatorKey, cachedResponse);
+
+        if (validatedResponse != null) {
+            cachedResponse.body().close();
+
+            return validatedResponse;
+        }
+
+        return getHeaderAndBody(cachedResponse);
+    }
+
+    private void revalidate(Request request, final String validatorKey) {
+        synchronized (revalidations) {
+            if (!revalidations.add(validatorKey)) {
+                return;
+            }
+        }
+
+        BackendHttp.getClient().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Response response) throws IOException {
+                try {
+                    // Reading the body completely stores it in the cache.
+                    HeaderAndBody headerAndBody = getHeaderAndBody(response);
+
+                    validators.putResponse(validatorKey, response, headerAndBody);
+                } catch (HttpException e) {
+                    Timber.d(e, "Revalidation failed.");
+                } finally {
+                    finishRevalidation(validatorKey);
+                }
+            }
+
+            @Override
+            public void onFailure(Request request, IOException e) {
+                Timber.d(e, "Revalidation failed.");
+
+                finishRevalidation(validatorKey);
+            }
+        });
+    }
+
+    private void finishRevalidation(String validatorKey) {
+        synchronized (revalidations) {
+            revalidations.remove(validatorKey);
+        }
+    }
+
+    private boolean isValidated(Request request) {
+        return (validators != null) && Methods.GET.equals(request.method());
+    }
+
+    private String getRequestKey(Request request) {
+        // Same resources differ between tenants.
+        return String.format("%s %s", request.header(BackendPipes.Headers.TENANT), request.urlString());
+    }
+
+    private String getFlightKey(URI uri) {
+        // Building a request applies all modules, the key is built of what identifies the read instead.
+        return String.format("%s %s", getTenant(), getUrl(uri).toExternalForm());
+    }
+
+    private String getTenant() {
+        for (PipeModule module : modules) {
+            if (module instanceof BackendPersonnel) {
+                return ((BackendPersonnel) module).getPersona().getId();
+            }
+        }
+
+        return null;
+    }
+
+    private Request getRequest(String method, URI uri, byte[] body) {
+        ModuleFields fields = getModuleFields(uri, method, body);
+
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(getUrl(uri, fields))
+                .header(BackendPipes.Headers.ACCEPT, JSON.toString())
+                .header(BackendPipes.Headers.CONTENT_TYPE, JSON.toString());
+
+        for (Pair<String, String> header : fields.getHeaders()) {
+            requestBuilder.header(header.first, header.second);
+        }
+
+        switch (method) {
+            case Methods.POST:
+                return requestBuilder.post(RequestBody.create(JSON, body)).build();
+
+            case Methods.PUT:
+                return requestBuilder.put(RequestBody.create(JSON, body)).build();
+
+            case Methods.DELETE:
+                return requestBuilder.delete().build();
+
+            default:
+                return requestBuilder.get().build();
+        }
+    }
+
+    private ModuleFields getModuleFields(URI uri, String method, byte[] body) {
+        ModuleFields fields = new ModuleFields();
+
+        for (PipeModule module : modules) {
+            ModuleFields moduleFields = module.loadModule(uri, method, (body == null) ? new byte[0] : body);
+
+            for (Pair<String, String> header : moduleFields.getHeaders()) {
+                fields.addHeader(header.first, header.second);
+            }
+
+            for (Pair<String, String> parameter : moduleFields.getQueryParameters()) {
+                fields.addQueryParameter(parameter.first, parameter.second);
+            }
+        }
+
+        return fields;
+    }
+
+    private URL getUrl(URI uri) {
+        URL url = UrlUtils.appendToBaseURL(baseUrl, uri.getRawPath());
+
+        if (uri.getRawQuery() != null) {
+            url = UrlUtils.appendQueryToBaseURL(url, uri.getRawQuery());
+        }
+
+        return url;
+    }
+
+    private HttpUrl getUrl(URI uri, ModuleFields fields) {
+        HttpUrl.Builder urlBuilder = HttpUrl.get(getUrl(uri)).newBuilder();
+
+        for (Pair<String, String> parameter : fields.getQueryParameters()) {
+            urlBuilder.addQueryParameter(parameter.first, parameter.second);
+        }
+
+        return urlBuilder.build();
+    }
+
+    private HeaderAndBody getHeaderAndBody(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw getHttpException(response);
+        }
+
+        byte[] body = response.body().bytes();
+        Map<String, String> headers = getHeaders(response.headers());
+
+        return new HeaderAndBody(body, new HashMap<String, Object>(headers));
+    }
+
+    private HttpException getHttpException(Response response) throws IOException {
+        return new HttpException(response.body().bytes(), response.code(), getHeaders(response.headers()));
+    }
+
+    private Map<String, String> getHeaders(Headers responseHeaders) {
+        Map<String, String> headers = new HashMap<>(responseHeaders.size());
+
+        for (String headerName : responseHeaders.names()) {
+            headers.put(headerName, TextUtils.join(",", responseHeaders.values(headerName)));
+        }
+
+        return headers;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Backend metric series parser.
+ * <p/>
+ * Reads metric buckets straight into a {@link MetricSeries} using a streaming JSON reader,
+ * without creating an object per bucket. A response is always parsed as a single series.
+ */
+final class BackendSeriesParser {
+    private static final class Fields {
+        private Fields() {
+        }
+
+        public static final String START = "start";
+        public static final String END = "end";
+        public static final String EMPTY = "empty";
+        public static final String MINIMUM = "min";
+        public static final String MAXIMUM = "max";
+        public static final String PERCENTILES = "percentiles";
+        public static final String QUANTILE = "quantile";
+        public static final String VALUE = "value";
+    }
+
+    public static final class Values {
+        private Values() {
+        }
+
+        public static final String AVERAGE = "avg";
+        public static final String UPTIME_RATIO = "uptimeRatio";
+    }
+
+    private final String valueField;
+
+    BackendSeriesParser(@NonNull String valueField) {
+        this.valueField = valueField;
+    }
+
+    /**
+     * Reads a series from a response body, the reader is closed once the series is read.
+     */
+    @NonNull
+    MetricSeries readSeries(@NonNull Reader body) throws IOException {
+        JsonReader reader = new JsonReader(body);
+
+        try {
+            // Values of empty buckets are sent as NaN.
+            reader.setLenient(true);
+
+            // Empty ranges are returned without content.
+            if (isEmpty(reader)) {
+                return new MetricSeries.Builder().build();
+            }
+
+            return readSeries(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads a JSON array of buckets the reader is positioned at. The reader has to be lenient.
+     */
+    @NonNull
+    MetricSeries readSeries(@NonNull JsonReader reader) throws IOException {
+        MetricSeries.Builder seriesBuilder = new MetricSeries.Builder();
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            readBucket(reader, seriesBuilder);
+        }
+
+        reader.endArray();
+
+        return seriesBuilder.build();
+    }
+
+    private boolean isEmpty(JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private void readBucket(JsonReader reader, MetricSeries.Builder seriesBuilder) throws IOException {
+        long startTimestamp = 0;
+        long endTimestamp = 0;
+        double value = Double.NaN;
+        double minimum = Double.NaN;
+        double maximum = Double.NaN;
+        double percentile = Double.NaN;
+        boolean empty = false;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (Fields.START.equals(field)) {
+                startTimestamp = reader.nextLong();
+            } else if (Fields.END.equals(field)) {
+                endTimestamp = reader.nextLong();
+            } else if (Fields.EMPTY.equals(field)) {
+                empty = reader.nextBoolean();
+            } else if (valueField.equals(field)) {
+                value = reader.nextDouble();
+            } else if (Fields.MINIMUM.equals(field)) {
+                minimum = reader.nextDouble();
+            } else if (Fields.MAXIMUM.equals(field)) {
+                maximum = reader.nextDouble();
+            } else if (Fields.PERCENTILES.equals(field)) {
+                percentile = readPercentile(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        seriesBuilder.add(startTimestamp, endTimestamp, value, minimum, maximum, percentile, empty);
+    }
+
+    private double readPercentile(JsonReader reader) throws IOException {
+        double percentile = Double.NaN;
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            double quantile = Double.NaN;
+            double value = Double.NaN;
+
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else if (Fields.QUANTILE.equals(field)) {
+                    quantile = reader.nextDouble();
+                } else if (Fields.VALUE.equals(field)) {
+                    value = reader.nextDouble();
+                } else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+
+            if (quantile == MetricSeries.PERCENTILE) {
+                percentile = value;
+            }
+        }
+
+        reader.endArray();
+
+        return percentile;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.squareup.okhttp.Response;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+/**
+ * Backend streaming reader.
+ * <p/>
+ * Parses JSON arrays item by item while the response is transferred, instead of reading the whole body
+ * and building a JSON tree of it first. Items are handed to a {@link BackendChunkCallback} in chunks.
+ * Chunks grow twice each time, so first items show up early while a count of chunks stays low.
+ * Items are not kept once their chunk is handed over, so the whole list is never held at once.
+ * Inventory items are compared with the {@link BackendInventory} snapshot while they are read,
+ * only items changed since the snapshot are held until the end of the response.
+ * <p/>
+ * Reads are executed using the {@link BackendHttp} executor, results are delivered using {@link BackendReceiver}.
+ * <p/>
+ * Inventory lists are taken from the {@link BackendInventory} snapshot at once if possible,
+ * see {@link BackendInventoryRunner}.
+ */
+final class BackendStreamer<T> {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int CHUNK_SIZE = 25;
+    }
+
+    private final BackendRunner<T> runner;
+    private final BackendInventoryRunner<T> inventoryRunner;
+    private final Class<T> type;
+    private final Gson gson;
+    private final JsonParser jsonParser;
+
+    BackendStreamer(@NonNull BackendRunner<T> runner, @Nullable BackendInventoryRunner<T> inventoryRunner,
+                    @NonNull Class<T> type) {
+        this.runner = runner;
+        this.inventoryRunner = inventoryRunner;
+        this.type = type;
+        this.gson = new Gson();
+        this.jsonParser = new JsonParser();
+    }
+
+    void read(@NonNull final URI uri, @Nullable Activity activity, @Nullable Fragment fragment,
+              @NonNull final BackendChunkCallback<T> callback) {
+        final BackendReceiver<List<T>> receiver = new BackendReceiver<>(activity, fragment, callback);
+
+        BackendHttp.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    read(uri, callback, receiver);
+                } catch (IOException | RuntimeException e) {
+                    receiver.post(e);
+                }
+            }
+        });
+    }
+
+    private void read(URI uri, BackendChunkCallback<T> callback, BackendReceiver<List<T>> receiver)
+            throws IOException {
+        if (inventoryRunner != null) {
+            JsonArray snapshotItems = inventoryRunner.onSnapshotRead(uri);
+
+            if (snapshotItems != null) {
+                readItems(snapshotItems, callback, receiver);
+                return;
+            }
+        }
+
+        Response response = runner.onStreamedRead(uri);
+
+        JsonReader reader = new JsonReader(response.body().charStream());
+
+        try {
+            BackendInventory.ListCollector inventoryItems = (inventoryRunner != null)
+                    ? inventoryRunner.onItemsRead(uri) : null;
+
+            // Empty results are returned without content sometimes.
+            if (!isEmpty(reader)) {
+                readItems(reader, inventoryItems, callback, receiver);
+            }
+
+            if (inventoryItems != null) {
+                inventoryItems.put();
+            }
+
+            receiver.post(Collections.<T>emptyList());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void readItems(JsonArray snapshotItems, BackendChunkCallback<T> callback,
+                           BackendReceiver<List<T>> receiver) {
+        List<T> items = new ArrayList<>(snapshotItems.size());
+
+        for (JsonElement snapshotItem : snapshotItems) {
+            items.add(gson.<T>fromJson(snapshotItem, type));
+        }
+
+        // Snapshot items are available at once, there is no point in splitting them.
+        if (!items.isEmpty()) {
+            postChunk(items, callback, receiver);
+        }
+
+        receiver.post(Collections.<T>emptyList());
+    }
+
+    private boolean isEmpty(JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private void readItems(JsonReader reader, BackendInventory.ListCollector inventoryItems,
+                           BackendChunkCallback<T> callback, BackendReceiver<List<T>> receiver) throws IOException {
+        int chunkSize = Defaults.CHUNK_SIZE;
+        List<T> chunk = new ArrayList<>(chunkSize);
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            if (inventoryItems == null) {
+                chunk.add(gson.<T>fromJson(reader, type));
+            } else {
+                // Inventory items are parsed as trees of their own, so they can be compared with the snapshot.
+                JsonElement inventoryItem = jsonParser.parse(reader);
+
+                inventoryItems.add(inventoryItem);
+                chunk.add(gson.<T>fromJson(inventoryItem, type));
+            }
+
+            if (chunk.size() == chunkSize) {
+                postChunk(chunk, callback, receiver);
+
+                chunkSize *= 2;
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        reader.endArray();
+
+        if (!chunk.isEmpty()) {
+            postChunk(chunk, callback, receiver);
+        }
+    }
+
+    private void postChunk(final List<T> chunk, final BackendChunkCallback<T> callback,
+                           BackendReceiver<List<T>> receiver) {
+        receiver.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onChunk(chunk);
+            }
+        });
+    }
+}
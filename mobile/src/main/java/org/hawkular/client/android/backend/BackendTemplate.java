@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import java.net.URI;
+import java.util.List;
+
+import org.hawkular.client.android.util.CanonicalPath;
+import org.hawkular.client.android.util.Uris;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+/**
+ * Backend URI template.
+ * <p/>
+ * Holds a relative {@link BackendPipes.Paths} entry parsed once. Inventory paths are expanded
+ * with a {@link org.hawkular.client.android.util.CanonicalPath}, metric paths with an identifier.
+ * <p/>
+ * Expanding returns a {@link Builder} reused by the calling thread, so a URI has to be built
+ * before the next one is expanded on the same thread.
+ */
+final class BackendTemplate {
+    private static final String ID = "{id}";
+
+    private static final ThreadLocal<Builder> builders = new ThreadLocal<Builder>() {
+        @Override
+        protected Builder initialValue() {
+            return new Builder();
+        }
+    };
+
+    private final String path;
+    private final CanonicalPath.Template pathTemplate;
+    private final String idPrefix;
+    private final String idSuffix;
+
+    private BackendTemplate(String path) {
+        this.path = "/" + path;
+
+        int idStart = this.path.indexOf(ID);
+
+        if (idStart >= 0) {
+            this.pathTemplate = null;
+            this.idPrefix = this.path.substring(0, idStart);
+            this.idSuffix = this.path.substring(idStart + ID.length());
+        } else {
+            this.pathTemplate = CanonicalPath.Template.of(this.path);
+            this.idPrefix = null;
+            this.idSuffix = null;
+        }
+    }
+
+    @NonNull
+    static BackendTemplate of(@NonNull String path) {
+        return new BackendTemplate(path);
+    }
+
+    @NonNull
+    Builder expand() {
+        if (path.indexOf('{') >= 0) {
+            throw new IllegalStateException(String.format("Path [%s] has placeholders.", path));
+        }
+
+        return getBuilder().append(path);
+    }
+
+    @NonNull
+    Builder expand(@NonNull CanonicalPath canonicalPath) {
+        if (pathTemplate == null) {
+            throw new IllegalStateException(String.format("Path [%s] is not an inventory one.", path));
+        }
+
+        Builder builder = getBuilder();
+
+        pathTemplate.expand(builder.uri, canonicalPath);
+
+        return builder;
+    }
+
+    @NonNull
+    Builder expand(@NonNull String id) {
+        if (idPrefix == null) {
+            throw new IllegalStateException(String.format("Path [%s] does not have an identifier.", path));
+        }
+
+        return getBuilder().append(idPrefix).append(Uri.encode(id)).append(idSuffix);
+    }
+
+    private Builder getBuilder() {
+        Builder builder = builders.get();
+        builder.reset();
+
+        return builder;
+    }
+
+    static final class Builder {
+        private final StringBuilder uri = new StringBuilder();
+
+        private boolean parametrized;
+
+        private void reset() {
+            uri.setLength(0);
+            parametrized = false;
+        }
+
+        private Builder append(String value) {
+            uri.append(value);
+
+            return this;
+        }
+
+        @NonNull
+        Builder parameter(@NonNull String name, @NonNull String value) {
+            uri.append(parametrized ? '&' : '?').append(Uri.encode(name)).append('=').append(Uri.encode(value));
+            parametrized = true;
+
+            return this;
+        }
+
+        @NonNull
+        Builder parameter(@NonNull String name, long value) {
+            uri.append(parametrized ? '&' : '?').append(Uri.encode(name)).append('=').append(value);
+            parametrized = true;
+
+            return this;
+        }
+
+        @NonNull
+        Builder parameter(@NonNull String name, @NonNull List<String> values) {
+            return parameter(name, Uris.getParameter(values));
+        }
+
+        @NonNull
+        URI build() {
+            return Uris.getUriFromString(uri.toString());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend;
+
+import org.jboss.aerogear.android.pipe.http.HeaderAndBody;
+
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+/**
+ * Backend response validators.
+ * <p/>
+ * Remembers {@code ETag} and {@code Last-Modified} values of read responses per request,
+ * so the next read can be sent as a conditional one and answered with {@code 304 Not Modified}
+ * instead of the full payload. Validated responses are kept as well to be returned in place of empty ones,
+ * unless their callers keep them on their own, like the {@link BackendInventory} snapshot does it.
+ */
+final class BackendValidators {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int SIZE = 2 * 1024 * 1024;
+
+        // Validators without responses are tiny, the estimate only bounds how many of them are kept.
+        public static final int VALIDATOR_SIZE = 256;
+    }
+
+    private static final class Validator {
+        private final String entityTag;
+        private final String lastModified;
+        private final HeaderAndBody response;
+
+        Validator(String entityTag, String lastModified, HeaderAndBody response) {
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.response = response;
+        }
+    }
+
+    private final LruCache<String, Validator> validators;
+    private final boolean responsesKept;
+
+    BackendValidators(boolean responsesKept) {
+        this.responsesKept = responsesKept;
+
+        this.validators = new LruCache<String, Validator>(Defaults.SIZE) {
+            @Override
+            protected int sizeOf(String key, Validator validator) {
+                if (validator.response == null) {
+                    return Defaults.VALIDATOR_SIZE;
+                }
+
+                return validator.response.getBody().length;
+            }
+        };
+    }
+
+    public void validate(@NonNull Request.Builder requestBuilder, @NonNull String key) {
+        Validator validator = validators.get(key);
+
+        if (validator == null) {
+            return;
+        }
+
+        if (validator.entityTag != null) {
+            requestBuilder.header(BackendPipes.Headers.IF_NONE_MATCH, validator.entityTag);
+        }
+
+        if (validator.lastModified != null) {
+            requestBuilder.header(BackendPipes.Headers.IF_MODIFIED_SINCE, validator.lastModified);
+        }
+    }
+
+    @Nullable
+    public HeaderAndBody getResponse(@NonNull String key) {
+        Validator validator = validators.get(key);
+
+        if (validator == null) {
+            return null;
+        }
+
+        return validator.response;
+    }
+
+    @Nullable
+    public HeaderAndBody getResponse(@NonNull String key, @NonNull Response response) {
+        Validator validator = validators.get(key);
+
+        if ((validator == null) || (validator.entityTag == null)) {
+            return null;
+        }
+
+        if (!validator.entityTag.equals(response.header(BackendPipes.Headers.ETAG))) {
+            return null;
+        }
+
+        return validator.response;
+    }
+
+    public void putResponse(@NonNull String key, @NonNull Response response, @NonNull HeaderAndBody body) {
+        String entityTag = response.header(BackendPipes.Headers.ETAG);
+        String lastModified = response.header(BackendPipes.Headers.LAST_MODIFIED);
+
+        if ((entityTag == null) && (lastModified == null)) {
+            validators.remove(key);
+            return;
+        }
+
+        validators.put(key, new Validator(entityTag, lastModified, responsesKept ? body : null));
+    }
+
+    public void clear() {
+        validators.evictAll();
+    }
+}
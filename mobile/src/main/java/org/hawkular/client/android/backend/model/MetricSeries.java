@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+/**
+ * Metric buckets series.
+ * <p/>
+ * Holds buckets as parallel primitive arrays instead of bucket objects.
+ * Buckets are sorted by start timestamps, values of empty buckets are not defined.
+ * <p/>
+ * Besides the value buckets carry the minimum, the maximum and the {@link #PERCENTILE} percentile
+ * of data points, {@link Double#NaN} if the backend does not provide them.
+ */
+public final class MetricSeries implements Parcelable {
+    public static final int PERCENTILE = 95;
+
+    private final long[] startTimestamps;
+    private final long[] endTimestamps;
+    private final double[] values;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final double[] percentiles;
+    private final BitSet empty;
+
+    private MetricSeries(long[] startTimestamps, long[] endTimestamps, double[] values,
+                         double[] minimums, double[] maximums, double[] percentiles, BitSet empty) {
+        this.startTimestamps = startTimestamps;
+        this.endTimestamps = endTimestamps;
+        this.values = values;
+        this.minimums = minimums;
+        this.maximums = maximums;
+        this.percentiles = percentiles;
+        this.empty = empty;
+    }
+
+    public int size() {
+        return startTimestamps.length;
+    }
+
+    public long getStartTimestamp(@IntRange(from = 0) int bucket) {
+        return startTimestamps[bucket];
+    }
+
+    public long getEndTimestamp(@IntRange(from = 0) int bucket) {
+        return endTimestamps[bucket];
+    }
+
+    public double getValue(@IntRange(from = 0) int bucket) {
+        return values[bucket];
+    }
+
+    public double getMinimum(@IntRange(from = 0) int bucket) {
+        return minimums[bucket];
+    }
+
+    public double getMaximum(@IntRange(from = 0) int bucket) {
+        return maximums[bucket];
+    }
+
+    public double getPercentile(@IntRange(from = 0) int bucket) {
+        return percentiles[bucket];
+    }
+
+    public boolean isEmpty(@IntRange(from = 0) int bucket) {
+        return empty.get(bucket);
+    }
+
+    /**
+     * Replaces buckets in a time range of another series with buckets of that series.
+     */
+    @NonNull
+    public MetricSeries merge(@NonNull MetricSeries series) {
+        if (series.size() == 0) {
+            return this;
+        }
+
+        long mergeStartTime = series.getStartTimestamp(0);
+        long mergeFinishTime = series.getEndTimestamp(series.size() - 1);
+
+        Builder seriesBuilder = new Builder(size() + series.size());
+
+        int bucket = 0;
+
+        for (; (bucket < size()) && (startTimestamps[bucket] < mergeStartTime); bucket++) {
+            seriesBuilder.add(this, bucket);
+        }
+
+        for (int mergeBucket = 0; mergeBucket < series.size(); mergeBucket++) {
+            seriesBuilder.add(series, mergeBucket);
+        }
+
+        for (; bucket < size(); bucket++) {
+            if (startTimestamps[bucket] >= mergeFinishTime) {
+                seriesBuilder.add(this, bucket);
+            }
+        }
+
+        return seriesBuilder.build();
+    }
+
+    public static final class Builder {
+        private static final int CAPACITY = 64;
+
+        private long[] startTimestamps;
+        private long[] endTimestamps;
+        private double[] values;
+        private double[] minimums;
+        private double[] maximums;
+        private double[] percentiles;
+        private final BitSet empty;
+
+        private int size;
+
+        public Builder() {
+            this(CAPACITY);
+        }
+
+        public Builder(@IntRange(from = 0) int capacity) {
+            this.startTimestamps = new long[capacity];
+            this.endTimestamps = new long[capacity];
+            this.values = new double[capacity];
+            this.minimums = new double[capacity];
+            this.maximums = new double[capacity];
+            this.percentiles = new double[capacity];
+            this.empty = new BitSet(capacity);
+        }
+
+        @NonNull
+        public Builder add(long startTimestamp, long endTimestamp, double value, boolean empty) {
+            return add(startTimestamp, endTimestamp, value, Double.NaN, Double.NaN, Double.NaN, empty);
+        }
+
+        @NonNull
+        public Builder add(long startTimestamp, long endTimestamp, double value,
+                           double minimum, double maximum, double percentile, boolean empty) {
+            if (size == startTimestamps.length) {
+                grow();
+            }
+
+            // Buckets usually arrive sorted, so a place for a bucket is found right away.
+            int bucket = size;
+
+            while ((bucket > 0) && (startTimestamps[bucket - 1] > startTimestamp)) {
+                startTimestamps[bucket] = startTimestamps[bucket - 1];
+                endTimestamps[bucket] = endTimestamps[bucket - 1];
+                values[bucket] = values[bucket - 1];
+                minimums[bucket] = minimums[bucket - 1];
+                maximums[bucket] = maximums[bucket - 1];
+                percentiles[bucket] = percentiles[bucket - 1];
+                this.empty.set(bucket, this.empty.get(bucket - 1));
+
+                bucket--;
+            }
+
+            startTimestamps[bucket] = startTimestamp;
+            endTimestamps[bucket] = endTimestamp;
+            values[bucket] = value;
+            minimums[bucket] = minimum;
+            maximums[bucket] = maximum;
+            percentiles[bucket] = percentile;
+            this.empty.set(bucket, empty);
+
+            size++;
+
+            return this;
+        }
+
+        @NonNull
+        public Builder add(@NonNull MetricSeries series, @IntRange(from = 0) int bucket) {
+            return add(series.getStartTimestamp(bucket), series.getEndTimestamp(bucket), series.getValue(bucket),
+                    series.getMinimum(bucket), series.getMaximum(bucket), series.getPercentile(bucket),
+                    series.isEmpty(bucket));
+        }
+
+        private void grow() {
+            int capacity = Math.max(CAPACITY, startTimestamps.length * 2);
+
+            startTimestamps = Arrays.copyOf(startTimestamps, capacity);
+            endTimestamps = Arrays.copyOf(endTimestamps, capacity);
+            values = Arrays.copyOf(values, capacity);
+            minimums = Arrays.copyOf(minimums, capacity);
+            maximums = Arrays.copyOf(maximums, capacity);
+            percentiles = Arrays.copyOf(percentiles, capacity);
+        }
+
+        @NonNull
+        public MetricSeries build() {
+            return new MetricSeries(
+                    Arrays.copyOf(startTimestamps, size),
+                    Arrays.copyOf(endTimestamps, size),
+                    Arrays.copyOf(values, size),
+                    Arrays.copyOf(minimums, size),
+                    Arrays.copyOf(maximums, size),
+                    Arrays.copyOf(percentiles, size),
+                    empty.get(0, size));
+        }
+    }
+
+    public static Creator<MetricSeries> CREATOR = new Creator<MetricSeries>() {
+        @Override
+        public MetricSeries createFromParcel(Parcel parcel) {
+            return new MetricSeries(parcel);
+        }
+
+        @Override
+        public MetricSeries[] newArray(int size) {
+            return new MetricSeries[size];
+        }
+    };
+
+    private MetricSeries(Parcel parcel) {
+        this.startTimestamps = parcel.createLongArray();
+        this.endTimestamps = parcel.createLongArray();
+        this.values = parcel.createDoubleArray();
+        this.minimums = parcel.createDoubleArray();
+        this.maximums = parcel.createDoubleArray();
+        this.percentiles = parcel.createDoubleArray();
+        this.empty = new BitSet(startTimestamps.length);
+
+        boolean[] empty = parcel.createBooleanArray();
+
+        for (int bucket = 0; bucket < empty.length; bucket++) {
+            this.empty.set(bucket, empty[bucket]);
+        }
+    }
+
+    @Override
+    public void writeToParcel(Parcel parcel, int flags) {
+        parcel.writeLongArray(startTimestamps);
+        parcel.writeLongArray(endTimestamps);
+        parcel.writeDoubleArray(values);
+        parcel.writeDoubleArray(minimums);
+        parcel.writeDoubleArray(maximums);
+        parcel.writeDoubleArray(percentiles);
+
+        boolean[] empty = new boolean[size()];
+
+        for (int bucket = 0; bucket < empty.length; bucket++) {
+            empty[bucket] = this.empty.get(bucket);
+        }
+
+        parcel.writeBooleanArray(empty);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.backend.model;
+
+import java.util.List;
+
+import android.support.annotation.NonNull;
+
+public final class ResourceChildren {
+    private final List<Resource> resources;
+    private final List<Metric> metrics;
+    private final List<Operation> operations;
+
+    public ResourceChildren(@NonNull List<Resource> resources, @NonNull List<Metric> metrics,
+                            @NonNull List<Operation> operations) {
+        this.resources = resources;
+        this.metrics = metrics;
+        this.operations = operations;
+    }
+
+    public List<Resource> getResources() {
+        return resources;
+    }
+
+    public List<Metric> getMetrics() {
+        return metrics;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+}
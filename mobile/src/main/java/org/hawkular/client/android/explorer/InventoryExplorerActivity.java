@@ -16,15 +16,18 @@
  */
 package org.hawkular.client.android.explorer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import org.hawkular.client.android.R;
+import org.hawkular.client.android.backend.BackendChunkCallback;
 import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Feed;
 import org.hawkular.client.android.backend.model.Metric;
 import org.hawkular.client.android.backend.model.Operation;
 import org.hawkular.client.android.backend.model.Resource;
+import org.hawkular.client.android.backend.model.ResourceChildren;
 import org.hawkular.client.android.explorer.holder.IconTreeItemHolder;
 import org.hawkular.client.android.fragment.ConfirmOperationFragment;
 import org.hawkular.client.android.util.Fragments;
@@ -108,16 +111,6 @@ public class InventoryExplorerActivity extends AppCompatActivity {
 
     }
 
-    private void setUpOperations(List<Operation> operations, TreeNode parent) {
-        for (Operation operation : operations) {
-            int icon = getResources().getIdentifier("drawable/" + "operation_icon", null, getPackageName());
-            TreeNode newFeed = new TreeNode(new IconTreeItemHolder.IconTreeItem(
-                    icon, IconTreeItemHolder.IconTreeItem.Type.OPERATION, operation.getId(), operation));
-            tView.addNode(parent, newFeed);
-        }
-
-    }
-
     private void setUpResources(List<Resource> resources, TreeNode parent) {
         for (Resource resource : resources) {
             int icon = getResources().getIdentifier("drawable/" + "resource_icon", null, getPackageName());
@@ -128,14 +121,37 @@ public class InventoryExplorerActivity extends AppCompatActivity {
 
     }
 
-    private void setUpMetrics(List<Metric> metrics, TreeNode parent) {
-        for (Metric metric : metrics) {
-            int icon = getResources().getIdentifier("drawable/" + "metric_icon", null, getPackageName());
-            TreeNode newMetric = new TreeNode(new IconTreeItemHolder.IconTreeItem(
-                    icon, IconTreeItemHolder.IconTreeItem.Type.METRIC, metric.getName(), metric));
-            tView.addNode(parent, newMetric);
+    private void setUpResourceChildren(ResourceChildren children, TreeNode parent) {
+        List<TreeNode> nodes = new ArrayList<>(
+                children.getResources().size() + children.getMetrics().size() + children.getOperations().size());
+
+        int resourceIcon = getResources().getIdentifier("drawable/" + "resource_icon", null, getPackageName());
+        for (Resource resource : children.getResources()) {
+            nodes.add(new TreeNode(new IconTreeItemHolder.IconTreeItem(
+                    resourceIcon, IconTreeItemHolder.IconTreeItem.Type.RESOURCE, resource.getName(), resource)));
+        }
+
+        int metricIcon = getResources().getIdentifier("drawable/" + "metric_icon", null, getPackageName());
+        for (Metric metric : children.getMetrics()) {
+            nodes.add(new TreeNode(new IconTreeItemHolder.IconTreeItem(
+                    metricIcon, IconTreeItemHolder.IconTreeItem.Type.METRIC, metric.getName(), metric)));
         }
 
+        int operationIcon = getResources().getIdentifier("drawable/" + "operation_icon", null, getPackageName());
+        for (Operation operation : children.getOperations()) {
+            nodes.add(new TreeNode(new IconTreeItemHolder.IconTreeItem(
+                    operationIcon, IconTreeItemHolder.IconTreeItem.Type.OPERATION, operation.getId(), operation)));
+        }
+
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        // Expanding lays out all children at once instead of adding them to the view one by one.
+        parent.addChildren(nodes);
+        tView.expandNode(parent);
+
+        BackendClient.of(this).prefetchResourceChildren(children.getResources());
     }
 
     private InventoryExplorerActivity getInventoryExplorerActivity() {
@@ -154,12 +170,8 @@ public class InventoryExplorerActivity extends AppCompatActivity {
                 }
             } else if (item.type == IconTreeItemHolder.IconTreeItem.Type.RESOURCE) {
                 if (node.size() == 0) {
-                    BackendClient.of(getInventoryExplorerActivity()).getRecResourcesFromFeed(
-                            new ResourcesCallback(node), (Resource) item.value);
-                    BackendClient.of(getInventoryExplorerActivity()).getMetricsFromFeed(
-                            new MetricsCallback(node), (Resource) item.value);
-                    BackendClient.of(getInventoryExplorerActivity()).getOpreations(
-                            new OperationsCallback(node), (Resource) item.value);
+                    BackendClient.of(getInventoryExplorerActivity()).getResourceChildren(
+                            new ResourceChildrenCallback(node), (Resource) item.value);
                 }
             } else if (item.type == IconTreeItemHolder.IconTreeItem.Type.METRIC) {
                 Intent intent = Intents.Builder.of(getApplicationContext()).buildMetricIntent((Metric) item.value);
@@ -253,46 +265,25 @@ public class InventoryExplorerActivity extends AppCompatActivity {
         }
     }
 
-    private final class OperationsCallback extends AbstractActivityCallback<List<Operation>> {
+    private final class ResourcesCallback extends AbstractActivityCallback<List<Resource>>
+            implements BackendChunkCallback<Resource> {
 
         private TreeNode parent;
 
-        OperationsCallback(TreeNode parent) {
+        ResourcesCallback(TreeNode parent) {
             this.parent = parent;
         }
 
         @Override
-        public void onSuccess(List<Operation> operations) {
-            if (!operations.isEmpty()) {
-                getInventoryExplorerActivity().setUpOperations(operations, parent);
-            }
-        }
-
-        @Override
-        public void onFailure(Exception e) {
-            Timber.d("Resources fetching failed.");
+        public void onChunk(List<Resource> resources) {
+            getInventoryExplorerActivity().setUpResources(resources, parent);
 
-        }
-
-        private InventoryExplorerActivity getInventoryExplorerActivity() {
-            return (InventoryExplorerActivity) getActivity();
-        }
-    }
-
-    private final class ResourcesCallback extends AbstractActivityCallback<List<Resource>> {
-
-        private TreeNode parent;
-
-        ResourcesCallback(TreeNode parent) {
-            this.parent = parent;
+            BackendClient.of(getInventoryExplorerActivity()).prefetchResourceChildren(resources);
         }
 
         @Override
         public void onSuccess(List<Resource> resources) {
-            if (!resources.isEmpty()) {
-                getInventoryExplorerActivity().setUpResources(resources, parent);
-            } else {
-            }
+            // Resources are set up and prefetched chunk by chunk while they are read.
         }
 
         @Override
@@ -307,19 +298,17 @@ public class InventoryExplorerActivity extends AppCompatActivity {
 
     }
 
-    private final class MetricsCallback extends AbstractActivityCallback<List<Metric>> {
+    private final class ResourceChildrenCallback extends AbstractActivityCallback<ResourceChildren> {
 
         private TreeNode parent;
 
-        MetricsCallback(TreeNode parent) {
+        ResourceChildrenCallback(TreeNode parent) {
             this.parent = parent;
         }
 
         @Override
-        public void onSuccess(List<Metric> metrics) {
-            if (!metrics.isEmpty()) {
-                getInventoryExplorerActivity().setUpMetrics(metrics, parent);
-            }
+        public void onSuccess(ResourceChildren children) {
+            getInventoryExplorerActivity().setUpResourceChildren(children, parent);
         }
 
         @Override
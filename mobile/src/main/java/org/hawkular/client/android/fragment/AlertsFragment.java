@@ -20,13 +20,19 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.hawkular.client.android.R;
 import org.hawkular.client.android.activity.AlertDetailActivity;
 import org.hawkular.client.android.adapter.AlertsAdapter;
 import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Alert;
+import org.hawkular.client.android.backend.model.AlertStatus;
 import org.hawkular.client.android.backend.model.Resource;
 import org.hawkular.client.android.backend.model.Trigger;
 import org.hawkular.client.android.util.ColorSchemer;
@@ -48,6 +54,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.ListView;
 import android.widget.PopupMenu;
 import butterknife.BindView;
@@ -61,9 +68,25 @@ import timber.log.Timber;
  * Alerts fragment.
  * <p/>
  * Displays alerts as a list with menus allowing some alert-related actions, such as acknowledgement and resolving.
+ * <p/>
+ * Refreshing reads only alerts created or changed since the latest known one and merges them into the list.
+ * Resolved alerts are read only when requested to be shown.
+ * <p/>
+ * Alerts are read in pages, starting from the latest ones. Earlier pages are read on scrolling to the list end.
+ * Pages are counted within the time range of the first page, so alerts created later do not shift them.
+ * Pages are counted within requested statuses as well, so alerts read already leaving these statuses,
+ * resolved ones for example, shift them. Alerts are read from the first page again then.
  */
 public final class AlertsFragment extends Fragment implements AlertsAdapter.AlertListener,
-        SwipeRefreshLayout.OnRefreshListener {
+        SwipeRefreshLayout.OnRefreshListener, AbsListView.OnScrollListener {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int ALERTS_PAGE_SIZE = 50;
+        public static final int ALERTS_PAGE_PREFETCH = 10;
+    }
+
     @BindView(R.id.list)
     ListView list;
 
@@ -85,6 +108,23 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
     @State
     boolean isActionPlus;
 
+    @State
+    boolean areResolvedAlertsAvailable;
+
+    @State
+    boolean areAlertsLoaded;
+
+    @State
+    int alertsPage;
+
+    @State
+    long alertsStartTime;
+
+    @State
+    long alertsFinishTime;
+
+    boolean isAlertsPageLoading;
+
     @State
     @IdRes
     int alertsTimeMenu;
@@ -123,6 +163,7 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
 
     private void setUpList() {
         list.setSelector(android.R.color.transparent);
+        list.setOnScrollListener(this);
     }
 
     private void setUpMenu() {
@@ -151,7 +192,16 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
     }
 
     private void setUpAlertsRefreshed() {
-        setUpAlerts();
+        if (!areAlertsAvailable()) {
+            setUpAlerts();
+            return;
+        }
+
+        setUpAlertsChanges();
+    }
+
+    private boolean areAlertsAvailable() {
+        return (alertsDump != null) && !alertsDump.isEmpty();
     }
 
     private void setUpAlertsForced() {
@@ -161,15 +211,78 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
     }
 
     private void setUpAlerts() {
+        areResolvedAlertsAvailable = isActionPlus;
+        areAlertsLoaded = false;
+        isAlertsPageLoading = false;
+
+        alertsPage = 0;
+        alertsStartTime = getAlertsTime().getTime();
+        alertsFinishTime = Time.current().getTime();
+
         if(getResource() == null) {
-            BackendClient.of(this).getAlerts(getAlertsTime(), Time.current(), null, new AlertsCallback());
+            BackendClient.of(this).getAlerts(new Date(alertsStartTime), new Date(alertsFinishTime),
+                    getAlertsStatuses(), null, alertsPage, Defaults.ALERTS_PAGE_SIZE, new AlertsCallback());
+        } else if (!areTriggersAvailable()) {
+            setUpTriggers();
+        } else {
+            BackendClient.of(this).getAlerts(new Date(alertsStartTime), new Date(alertsFinishTime),
+                    getAlertsStatuses(), triggers, alertsPage, Defaults.ALERTS_PAGE_SIZE, new AlertsCallback());
+        }
+    }
+
+    private void setUpAlertsPage() {
+        if (areAlertsLoaded || isAlertsPageLoading || !areAlertsAvailable()) {
+            return;
+        }
+
+        isAlertsPageLoading = true;
+
+        BackendClient.of(this).getAlerts(new Date(alertsStartTime), new Date(alertsFinishTime),
+                getAlertsStatuses(), getAlertsTriggers(), alertsPage + 1, Defaults.ALERTS_PAGE_SIZE,
+                new AlertsPageCallback(alertsFinishTime));
+    }
+
+    private List<Trigger> getAlertsTriggers() {
+        if (getResource() == null) {
+            return null;
+        }
+
+        return triggers;
+    }
+
+    private Date getAlertsCursorTime() {
+        if (areAlertsLoaded || !areAlertsAvailable()) {
+            return getAlertsTime();
+        }
+
+        return new Date(alertsDump.get(alertsDump.size() - 1).getTimestamp());
+    }
+
+    private Set<AlertStatus> getAlertsStatuses() {
+        if (areResolvedAlertsAvailable) {
+            return EnumSet.allOf(AlertStatus.class);
+        } else {
+            return EnumSet.of(AlertStatus.OPEN, AlertStatus.ACKNOWLEDGED);
+        }
+    }
+
+    private void setUpAlertsChanges() {
+        if (getResource() == null) {
+            BackendClient.of(this).getAlerts(getAlertsTime(), Time.current(), getAlertsChangeTime(), null,
+                    Defaults.ALERTS_PAGE_SIZE, new AlertsChangesCallback());
         } else if (!areTriggersAvailable()) {
             setUpTriggers();
         } else {
-            BackendClient.of(this).getAlerts(getAlertsTime(), Time.current(), triggers, new AlertsCallback());
+            BackendClient.of(this).getAlerts(getAlertsTime(), Time.current(), getAlertsChangeTime(), triggers,
+                    Defaults.ALERTS_PAGE_SIZE, new AlertsChangesCallback());
         }
     }
 
+    private Date getAlertsChangeTime() {
+        // Alerts are sorted, changes of earlier alerts were read before the latest one was created.
+        return new Date(alertsDump.get(0).getTimestamp());
+    }
+
     private boolean areTriggersAvailable() {
         return (triggers != null) && !triggers.isEmpty();
     }
@@ -241,12 +354,12 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
         if (isActionPlus) {
             this.alerts = alertsDump;
             if (this.alerts != null) {
-                list.setAdapter(new AlertsAdapter(getActivity(), this, this.alerts));
+                setUpAlertsAdapter();
             }
         } else {
             this.alerts = removeResolved();
             if (this.alerts != null) {
-                list.setAdapter(new AlertsAdapter(getActivity(), this, this.alerts));
+                setUpAlertsAdapter();
             }
         }
 
@@ -255,6 +368,125 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
         showList();
     }
 
+    private void setUpAlertsAdapter() {
+        // Updating the existing adapter keeps the scroll position while pages are appended.
+        if (getAlertsAdapter() == null) {
+            list.setAdapter(new AlertsAdapter(getActivity(), this, this.alerts));
+        } else {
+            getAlertsAdapter().setAlerts(this.alerts);
+        }
+    }
+
+    private void setUpAlertsPaging(List<Alert> alertsPage) {
+        areAlertsLoaded = alertsPage.size() < Defaults.ALERTS_PAGE_SIZE;
+    }
+
+    private boolean isAlertsPageActual(long alertsFinishTime) {
+        // Pages requested before alerts were read again belong to pages counted differently.
+        return alertsFinishTime == this.alertsFinishTime;
+    }
+
+    private void setUpAlertsPage(List<Alert> alertsPage, long alertsFinishTime) {
+        if (!isAlertsPageActual(alertsFinishTime)) {
+            return;
+        }
+
+        isAlertsPageLoading = false;
+
+        this.alertsPage++;
+
+        setUpAlertsPaging(alertsPage);
+
+        setUpAlerts(mergeAlerts(alertsPage, getAlertsTime()));
+    }
+
+    private void tearDownAlertsPage(long alertsFinishTime) {
+        if (isAlertsPageActual(alertsFinishTime)) {
+            isAlertsPageLoading = false;
+        }
+    }
+
+    private void setUpAlertsChanges(List<Alert> alertsChanges) {
+        // Changes not fitting a page cannot be merged without gaps, reading alerts again is cheaper anyway.
+        if ((alertsChanges.size() >= Defaults.ALERTS_PAGE_SIZE) || areAlertsPagesShifted(alertsChanges)) {
+            setUpAlerts();
+            return;
+        }
+
+        // Changes of alerts not read yet are ignored, such alerts will be read with next pages.
+        List<Alert> alerts = mergeAlerts(alertsChanges, getAlertsCursorTime());
+
+        if (!alerts.isEmpty()) {
+            setUpAlerts(alerts);
+        } else {
+            hideRefreshing();
+
+            showMessage();
+            cleanDump();
+        }
+    }
+
+    private boolean areAlertsPagesShifted(List<Alert> alertsChanges) {
+        if (areAlertsLoaded) {
+            return false;
+        }
+
+        Set<String> alertIds = new HashSet<>(alertsDump.size());
+
+        for (Alert alert : alertsDump) {
+            alertIds.add(alert.getId());
+        }
+
+        Set<String> alertStatuses = new HashSet<>();
+
+        for (AlertStatus alertStatus : getAlertsStatuses()) {
+            alertStatuses.add(alertStatus.name());
+        }
+
+        // Alerts of pages not read yet do not shift pages read before them.
+        for (Alert alertChange : alertsChanges) {
+            if (alertIds.contains(alertChange.getId()) && !alertStatuses.contains(alertChange.getStatus())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private List<Alert> mergeAlerts(List<Alert> alertsChanges, Date alertsTime) {
+        Map<String, Integer> alertPositions = new HashMap<>(alertsDump.size());
+
+        for (int alertPosition = 0; alertPosition < alertsDump.size(); alertPosition++) {
+            alertPositions.put(alertsDump.get(alertPosition).getId(), alertPosition);
+        }
+
+        List<Alert> alerts = new ArrayList<>(alertsDump);
+
+        for (Alert alertChange : alertsChanges) {
+            Integer alertPosition = alertPositions.get(alertChange.getId());
+
+            if (alertPosition != null) {
+                alerts.set(alertPosition, alertChange);
+            } else {
+                alerts.add(alertChange);
+            }
+        }
+
+        return removeExpired(alerts, alertsTime);
+    }
+
+    private List<Alert> removeExpired(List<Alert> alerts, Date alertsTime) {
+        List<Alert> actualAlerts = new ArrayList<>(alerts.size());
+
+        for (Alert alert : alerts) {
+            if (alert.getTimestamp() >= alertsTime.getTime()) {
+                actualAlerts.add(alert);
+            }
+        }
+
+        return actualAlerts;
+    }
+
     private ArrayList<Alert> removeResolved() {
         this.alerts = new ArrayList<>();
         for (Alert alert : alertsDump) {
@@ -268,6 +500,17 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
         Collections.sort(alerts, new AlertsComparator());
     }
 
+    @Override
+    public void onScrollStateChanged(AbsListView listView, int scrollState) {
+    }
+
+    @Override
+    public void onScroll(AbsListView listView, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (firstVisibleItem + visibleItemCount >= totalItemCount - Defaults.ALERTS_PAGE_PREFETCH) {
+            setUpAlertsPage();
+        }
+    }
+
     @Override
     public void onAlertBodyClick(View alertView, int alertPosition) {
         Intent intent = new Intent(getActivity(), AlertDetailActivity.class);
@@ -344,7 +587,13 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
 
             case R.id.show_hide_res:
                 isActionPlus = !isActionPlus;
-                setUpAlerts(alertsDump);
+
+                if (isActionPlus && !areResolvedAlertsAvailable) {
+                    setUpAlertsForced();
+                } else if (areAlertsAvailable()) {
+                    setUpAlerts(alertsDump);
+                }
+
                 return true;
 
             default:
@@ -423,6 +672,8 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
     private static final class AlertsCallback extends AbstractSupportFragmentCallback<List<Alert>> {
         @Override
         public void onSuccess(List<Alert> alerts) {
+            getAlertsFragment().setUpAlertsPaging(alerts);
+
             if (!alerts.isEmpty()) {
                 getAlertsFragment().setUpAlerts(alerts);
             } else {
@@ -443,6 +694,48 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
         }
     }
 
+    private static final class AlertsPageCallback extends AbstractSupportFragmentCallback<List<Alert>> {
+        private final long alertsFinishTime;
+
+        public AlertsPageCallback(long alertsFinishTime) {
+            this.alertsFinishTime = alertsFinishTime;
+        }
+
+        @Override
+        public void onSuccess(List<Alert> alertsPage) {
+            getAlertsFragment().setUpAlertsPage(alertsPage, alertsFinishTime);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Alerts page fetching failed.");
+
+            getAlertsFragment().tearDownAlertsPage(alertsFinishTime);
+        }
+
+        private AlertsFragment getAlertsFragment() {
+            return (AlertsFragment) getSupportFragment();
+        }
+    }
+
+    private static final class AlertsChangesCallback extends AbstractSupportFragmentCallback<List<Alert>> {
+        @Override
+        public void onSuccess(List<Alert> alertsChanges) {
+            getAlertsFragment().setUpAlertsChanges(alertsChanges);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Alerts changes fetching failed.");
+
+            getAlertsFragment().showError();
+        }
+
+        private AlertsFragment getAlertsFragment() {
+            return (AlertsFragment) getSupportFragment();
+        }
+    }
+
     private static final class AlertActionCallback extends AbstractSupportFragmentCallback<List<String>> {
         @Override
         public void onSuccess(List<String> result) {
@@ -464,7 +757,7 @@ public final class AlertsFragment extends Fragment implements AlertsAdapter.Aler
             Date leftAlertTimestamp = new Date(leftAlert.getTimestamp());
             Date rightAlertTimestamp = new Date(rightAlert.getTimestamp());
 
-            return leftAlertTimestamp.compareTo(rightAlertTimestamp);
+            return rightAlertTimestamp.compareTo(leftAlertTimestamp);
         }
     }
 }
@@ -19,14 +19,24 @@ package org.hawkular.client.android.fragment;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import org.hawkular.client.android.R;
 import org.hawkular.client.android.adapter.FavMetricsAdapter;
+import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Metric;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.backend.model.Persona;
 import org.hawkular.client.android.util.ColorSchemer;
 import org.hawkular.client.android.util.Intents;
+import org.hawkular.client.android.util.Preferences;
+import org.hawkular.client.android.util.Sparklines;
+import org.hawkular.client.android.util.Time;
 import org.hawkular.client.android.util.ViewDirector;
+import org.jboss.aerogear.android.core.Callback;
+import org.jboss.aerogear.android.pipe.callback.AbstractSupportFragmentCallback;
 import org.jboss.aerogear.android.store.DataManager;
 import org.jboss.aerogear.android.store.generator.IdGenerator;
 import org.jboss.aerogear.android.store.sql.SQLStore;
@@ -48,11 +58,13 @@ import butterknife.BindView;
 import butterknife.ButterKnife;
 import icepick.Icepick;
 import icepick.State;
+import timber.log.Timber;
 
 /**
  * Favourite Metrics fragment.
  * <p>
  * Displays available favourite metrics.
+ * Sparklines of metrics are read in a single batch, only for metrics without fresh ones.
  */
 
 public class FavMetricsFragment extends Fragment implements SwipeRefreshLayout.OnRefreshListener,
@@ -68,6 +80,15 @@ public class FavMetricsFragment extends Fragment implements SwipeRefreshLayout.O
     @Nullable
     ArrayList<Metric> metrics;
 
+    private final Runnable sparklinesRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if (list.getAdapter() != null) {
+                getFavMetricsAdapter().notifyDataSetChanged();
+            }
+        }
+    };
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle state) {
@@ -95,9 +116,44 @@ public class FavMetricsFragment extends Fragment implements SwipeRefreshLayout.O
 
         Collection<Metric> array = store.readAll();
         metrics = new ArrayList<>(array);
-        list.setAdapter(new FavMetricsAdapter(getActivity(), this, metrics));
+        list.setAdapter(new FavMetricsAdapter(getActivity(), this, metrics, getPersona()));
         hideRefreshing();
         showList();
+
+        setUpSparklines();
+    }
+
+    private Persona getPersona() {
+        return new Persona(Preferences.of(getActivity()).personaId().get());
+    }
+
+    private void setUpSparklines() {
+        Persona persona = getPersona();
+
+        List<Metric> sparklineMetrics = new ArrayList<>();
+        List<Callback<MetricSeries>> sparklineCallbacks = new ArrayList<>();
+
+        for (Metric metric : metrics) {
+            if (!Sparklines.isFresh(persona, metric)) {
+                sparklineMetrics.add(metric);
+                sparklineCallbacks.add(new SparklineCallback(persona, metric));
+            }
+        }
+
+        Date finishTime = Time.current();
+        Date startTime = new Date(finishTime.getTime() - Sparklines.DURATION);
+
+        BackendClient.of(this).getMetricData(sparklineMetrics, Sparklines.POINTS, startTime, finishTime,
+                sparklineCallbacks);
+    }
+
+    private void setUpSparkline(Persona persona, Metric metric, MetricSeries series) {
+        // Series read before the persona was changed are stored for the persona they were read for.
+        Sparklines.setSeries(persona, metric, series);
+
+        // Sparklines of a batch arrive together, the list is updated once for all of them.
+        list.removeCallbacks(sparklinesRefresh);
+        list.post(sparklinesRefresh);
     }
 
 
@@ -202,5 +258,28 @@ public class FavMetricsFragment extends Fragment implements SwipeRefreshLayout.O
     private FavMetricsAdapter getFavMetricsAdapter() {
         return (FavMetricsAdapter) list.getAdapter();
     }
-}
 
+    private static final class SparklineCallback extends AbstractSupportFragmentCallback<MetricSeries> {
+        private final Persona persona;
+        private final Metric metric;
+
+        public SparklineCallback(Persona persona, Metric metric) {
+            this.persona = persona;
+            this.metric = metric;
+        }
+
+        @Override
+        public void onSuccess(MetricSeries metricSeries) {
+            getFavMetricsFragment().setUpSparkline(persona, metric, metricSeries);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Sparkline fetching failed.");
+        }
+
+        private FavMetricsFragment getFavMetricsFragment() {
+            return (FavMetricsFragment) getSupportFragment();
+        }
+    }
+}
@@ -18,7 +18,6 @@ package org.hawkular.client.android.fragment;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -26,7 +25,9 @@ import org.hawkular.client.android.R;
 import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Metric;
 import org.hawkular.client.android.backend.model.MetricAvailability;
-import org.hawkular.client.android.backend.model.MetricBucket;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.util.Buckets;
+import org.hawkular.client.android.util.ChartTask;
 import org.hawkular.client.android.util.ColorSchemer;
 import org.hawkular.client.android.util.Formatter;
 import org.hawkular.client.android.util.Fragments;
@@ -39,9 +40,11 @@ import android.support.annotation.ColorInt;
 import android.support.annotation.ColorRes;
 import android.support.annotation.FloatRange;
 import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -74,6 +77,8 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
         }
 
         public static final int AXIS_INTERVAL = 3;
+
+        public static final int BUCKET_WIDTH = 8;
     }
 
     @BindView(R.id.metric_name)
@@ -86,12 +91,14 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
     SwipeRefreshLayout contentLayout;
 
     @State
-    ArrayList<MetricBucket> metricBucket;
+    MetricSeries metricSeries;
 
     @State
     @IdRes
     int timeMenu;
 
+    private ChartDataTask chartDataTask;
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle state) {
@@ -185,12 +192,12 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
 
     @OnClick(R.id.button_retry)
     public void setUpMetricData() {
-        if (metricBucket == null) {
+        if (metricSeries == null) {
             showProgress();
             timeMenu = R.id.menu_time_hour;
             setUpMetricDataForced();
         } else {
-            setUpMetricData(metricBucket);
+            setUpMetricData(metricSeries);
         }
     }
 
@@ -222,70 +229,64 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
     }
 
     private long getBuckets() {
-        return (60);
-    }
+        long duration = getMetricFinishTime().getTime() - getMetricStartTime().getTime();
 
-    private void showProgress() {
-        ViewDirector.of(this).using(R.id.animator).show(R.id.progress);
+        return Buckets.getCount(getChartWidth(), getBucketWidth(), duration);
     }
 
-    private void setUpMetricData(List<MetricBucket> metricBucketList) {
-        this.metricBucket = new ArrayList<>(metricBucketList);
-
-        sortMetricData(metricBucket);
-
-        setUpChartColumns();
-        setUpChartArea();
-
-        hideRefreshing();
+    private int getChartWidth() {
+        // The chart is not measured before the first layout pass, the screen is a good approximation.
+        if (chart.getWidth() == 0) {
+            return getResources().getDisplayMetrics().widthPixels;
+        }
 
-        showChart();
+        return chart.getWidth();
     }
 
-    private void sortMetricData(List<MetricBucket> metricBucketList) {
-        Collections.sort(metricBucketList, new MetricBucketComparator());
+    private float getBucketWidth() {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, Defaults.BUCKET_WIDTH,
+                getResources().getDisplayMetrics());
     }
 
-    private void setUpChartColumns() {
-        List<Column> chartColumns = getChartColumns();
-        List<AxisValue> chartAxisPoints = getChartAxisPoints();
-        List<AxisValue> chartAxisValues = getChartAxisValues();
+    private void showProgress() {
+        ViewDirector.of(this).using(R.id.animator).show(R.id.progress);
+    }
 
-        ColumnChartData chartData = new ColumnChartData()
-                .setColumns(chartColumns);
-        chartData.setAxisXBottom(new Axis()
-                .setValues(chartAxisPoints));
-        chartData.setAxisYLeft(new Axis()
-                .setValues(chartAxisValues));
+    private void setUpMetricData(MetricSeries metricSeries) {
+        this.metricSeries = metricSeries;
 
-        chart.setColumnChartData(chartData);
+        setUpChartData();
     }
 
-    private List<Column> getChartColumns() {
-        List<Column> chartColumns = new ArrayList<>(metricBucket.size());
+    private void setUpChartData() {
+        tearDownChartData();
 
-        for (MetricBucket metricBucket : this.metricBucket) {
-            MetricAvailability metricAvailability = null;
-            if (metricBucket.isEmpty()) {
-                metricAvailability = MetricAvailability.from("unknown");
-            } else if (Float.parseFloat(metricBucket.getValue()) >= .5) {
-                metricAvailability = MetricAvailability.from("up");
-            } else {
-                metricAvailability = MetricAvailability.from("down");
-            }
+        chartDataTask = new ChartDataTask(this, metricSeries, timeMenu,
+                getColumnColor(MetricAvailability.UP),
+                getColumnColor(MetricAvailability.DOWN),
+                getColumnColor(MetricAvailability.UNKNOWN),
+                getString(R.string.label_availability_up),
+                getString(R.string.label_availability_down));
+        chartDataTask.start();
+    }
 
+    private void setUpChartData(ColumnChartData chartData) {
+        chart.setColumnChartData(chartData);
+        setUpChartArea();
 
-            float columnValue = getColumnValue(metricAvailability);
-            int columnColor = getColumnColor(metricAvailability);
+        hideRefreshing();
 
-            chartColumns.add(new Column(Collections.singletonList(new SubcolumnValue(columnValue, columnColor))));
-        }
+        showChart();
+    }
 
-        return chartColumns;
+    private void tearDownChartData() {
+        if (chartDataTask != null) {
+            chartDataTask.cancel(false);
+        }
     }
 
     @FloatRange(from = -1.0, to = 1.0)
-    private float getColumnValue(MetricAvailability metricAvailability) {
+    private static float getColumnValue(MetricAvailability metricAvailability) {
         switch (metricAvailability) {
             case UP:
                 return 1;
@@ -317,44 +318,6 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
         }
     }
 
-    private List<AxisValue> getChartAxisPoints() {
-        List<AxisValue> chartAxisPoints = new ArrayList<>();
-
-        for (int metricDataPoint = 0; metricDataPoint < metricBucket.size();
-             metricDataPoint += Defaults.AXIS_INTERVAL) {
-            float chartAxisPointHorizontal = metricDataPoint;
-            String chartAxisPointLabel;
-            switch (timeMenu) {
-                case R.id.menu_time_hour:
-                case R.id.menu_time_day:
-                    chartAxisPointLabel = Formatter.formatTime(metricBucket.get(metricDataPoint).getStartTimestamp());
-                    break;
-                case R.id.menu_time_week:
-                case R.id.menu_time_month:
-                case R.id.menu_time_year:
-                default:
-                    chartAxisPointLabel = Formatter.formatDate(metricBucket.get(metricDataPoint).getStartTimestamp());
-            }
-
-
-            chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                    .setLabel(chartAxisPointLabel));
-        }
-
-        return chartAxisPoints;
-    }
-
-    private List<AxisValue> getChartAxisValues() {
-        List<AxisValue> chartAxisValues = new ArrayList<>();
-
-        chartAxisValues.add(new AxisValue(getColumnValue(MetricAvailability.UP) / 2)
-                .setLabel(getString(R.string.label_availability_up)));
-        chartAxisValues.add(new AxisValue(getColumnValue(MetricAvailability.DOWN) / 2)
-                .setLabel(getString(R.string.label_availability_down)));
-
-        return chartAxisValues;
-    }
-
     private void setUpChartArea() {
         Viewport currentViewport = new Viewport(chart.getMaximumViewport());
 
@@ -393,11 +356,11 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
         Icepick.saveInstanceState(this, state);
     }
 
-    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<List<MetricBucket>> {
+    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<MetricSeries> {
         @Override
-        public void onSuccess(List<MetricBucket> metricBuckets) {
-            if (!metricBuckets.isEmpty()) {
-                getMetricFragment().setUpMetricData(metricBuckets);
+        public void onSuccess(MetricSeries metricSeries) {
+            if (metricSeries.size() != 0) {
+                getMetricFragment().setUpMetricData(metricSeries);
             } else {
                 getMetricFragment().showMessage();
             }
@@ -415,13 +378,127 @@ public final class MetricAvailabilityFragment extends Fragment implements SwipeR
         }
     }
 
-    private static final class MetricBucketComparator implements Comparator<MetricBucket> {
+    private static final class ChartDataTask extends ChartTask<MetricAvailabilityFragment, ColumnChartData> {
+        private final MetricSeries metricSeries;
+
+        private final int timeMenu;
+
+        @ColorInt
+        private final int upColor;
+        @ColorInt
+        private final int downColor;
+        @ColorInt
+        private final int unknownColor;
+
+        private final String upLabel;
+        private final String downLabel;
+
+        ChartDataTask(@NonNull MetricAvailabilityFragment fragment, @NonNull MetricSeries metricSeries,
+                      @IdRes int timeMenu, @ColorInt int upColor, @ColorInt int downColor, @ColorInt int unknownColor,
+                      @NonNull String upLabel, @NonNull String downLabel) {
+            super(fragment);
+
+            this.metricSeries = metricSeries;
+
+            this.timeMenu = timeMenu;
+
+            this.upColor = upColor;
+            this.downColor = downColor;
+            this.unknownColor = unknownColor;
+
+            this.upLabel = upLabel;
+            this.downLabel = downLabel;
+        }
+
         @Override
-        public int compare(MetricBucket leftMetricBucket, MetricBucket rightMetricBucket) {
-            Date leftMetricBucketTimestamp = new Date(leftMetricBucket.getStartTimestamp());
-            Date rightMetricBucketTimestamp = new Date(rightMetricBucket.getStartTimestamp());
+        protected ColumnChartData prepare() {
+            ColumnChartData chartData = new ColumnChartData()
+                    .setColumns(getChartColumns());
+            chartData.setAxisXBottom(new Axis()
+                    .setValues(getChartAxisPoints()));
+            chartData.setAxisYLeft(new Axis()
+                    .setValues(getChartAxisValues()));
+
+            return chartData;
+        }
+
+        @Override
+        protected void apply(@NonNull MetricAvailabilityFragment fragment, ColumnChartData chartData) {
+            fragment.setUpChartData(chartData);
+        }
+
+        private List<Column> getChartColumns() {
+            List<Column> chartColumns = new ArrayList<>(metricSeries.size());
+
+            for (int bucket = 0; bucket < metricSeries.size(); bucket++) {
+                MetricAvailability metricAvailability = null;
+                if (metricSeries.isEmpty(bucket)) {
+                    metricAvailability = MetricAvailability.from("unknown");
+                } else if (metricSeries.getValue(bucket) >= .5) {
+                    metricAvailability = MetricAvailability.from("up");
+                } else {
+                    metricAvailability = MetricAvailability.from("down");
+                }
+
+                float columnValue = getColumnValue(metricAvailability);
+                int columnColor = getColumnColor(metricAvailability);
+
+                chartColumns.add(new Column(Collections.singletonList(new SubcolumnValue(columnValue, columnColor))));
+            }
+
+            return chartColumns;
+        }
+
+        @ColorInt
+        private int getColumnColor(MetricAvailability metricAvailability) {
+            switch (metricAvailability) {
+                case UP:
+                    return upColor;
+
+                case DOWN:
+                    return downColor;
+
+                default:
+                    return unknownColor;
+            }
+        }
+
+        private List<AxisValue> getChartAxisPoints() {
+            List<AxisValue> chartAxisPoints = new ArrayList<>();
+
+            for (int metricDataPoint = 0; metricDataPoint < metricSeries.size();
+                 metricDataPoint += Defaults.AXIS_INTERVAL) {
+                float chartAxisPointHorizontal = metricDataPoint;
+                long chartAxisPointTimestamp = metricSeries.getStartTimestamp(metricDataPoint);
+                String chartAxisPointLabel;
+                switch (timeMenu) {
+                    case R.id.menu_time_hour:
+                    case R.id.menu_time_day:
+                        chartAxisPointLabel = Formatter.formatTime(chartAxisPointTimestamp);
+                        break;
+                    case R.id.menu_time_week:
+                    case R.id.menu_time_month:
+                    case R.id.menu_time_year:
+                    default:
+                        chartAxisPointLabel = Formatter.formatDate(chartAxisPointTimestamp);
+                }
+
+                chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                        .setLabel(chartAxisPointLabel));
+            }
+
+            return chartAxisPoints;
+        }
+
+        private List<AxisValue> getChartAxisValues() {
+            List<AxisValue> chartAxisValues = new ArrayList<>();
+
+            chartAxisValues.add(new AxisValue(getColumnValue(MetricAvailability.UP) / 2)
+                    .setLabel(upLabel));
+            chartAxisValues.add(new AxisValue(getColumnValue(MetricAvailability.DOWN) / 2)
+                    .setLabel(downLabel));
 
-            return leftMetricBucketTimestamp.compareTo(rightMetricBucketTimestamp);
+            return chartAxisValues;
         }
     }
 }
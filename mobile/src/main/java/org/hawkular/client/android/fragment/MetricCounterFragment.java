@@ -19,27 +19,34 @@ package org.hawkular.client.android.fragment;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.hawkular.client.android.R;
 import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Metric;
-import org.hawkular.client.android.backend.model.MetricBucket;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.util.Buckets;
+import org.hawkular.client.android.util.ChartTask;
 import org.hawkular.client.android.util.ColorSchemer;
+import org.hawkular.client.android.util.Downsampler;
 import org.hawkular.client.android.util.Formatter;
 import org.hawkular.client.android.util.Fragments;
+import org.hawkular.client.android.util.Rates;
 import org.hawkular.client.android.util.Time;
 import org.hawkular.client.android.util.ViewDirector;
 import org.jboss.aerogear.android.pipe.callback.AbstractSupportFragmentCallback;
 
 import android.os.Bundle;
+import android.support.annotation.ColorInt;
 import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -52,6 +59,7 @@ import butterknife.ButterKnife;
 import butterknife.OnClick;
 import icepick.Icepick;
 import icepick.State;
+import lecho.lib.hellocharts.listener.ViewportChangeListener;
 import lecho.lib.hellocharts.model.Axis;
 import lecho.lib.hellocharts.model.AxisValue;
 import lecho.lib.hellocharts.model.Line;
@@ -65,8 +73,19 @@ import timber.log.Timber;
  * Metric fragment.
  *
  * Displays metric gauge data as a line chart.
+ * A count of buckets depends on the chart width, zooming the chart in reads more detailed data.
+ * Cumulative values can be shown as rates per second or minute, computed from the same buckets.
  */
-public final class MetricCounterFragment extends Fragment implements SwipeRefreshLayout.OnRefreshListener {
+public final class MetricCounterFragment extends Fragment implements SwipeRefreshLayout.OnRefreshListener,
+        ViewportChangeListener {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int BUCKET_WIDTH = 4;
+
+        public static final long ZOOM_DELAY = 500;
+    }
 
     @BindView(R.id.metric_name)
     TextView metric_name;
@@ -78,12 +97,27 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
     SwipeRefreshLayout contentLayout;
 
     @State
-    ArrayList<MetricBucket> metricBucket;
+    MetricSeries metricSeries;
 
     @State
     @IdRes
     int timeMenu;
 
+    @State
+    @IdRes
+    int rateMenu = R.id.menu_rate_total;
+
+    private long chartTime;
+
+    private ChartDataTask chartDataTask;
+
+    private final Runnable chartZoomAction = new Runnable() {
+        @Override
+        public void run() {
+            setUpMetricDataZoomed();
+        }
+    };
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle state) {
@@ -101,6 +135,7 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         setUpMenu();
 
         setUpRefreshing();
+        setUpChart();
 
         setUpMetricData();
     }
@@ -110,6 +145,7 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         super.onCreateOptionsMenu(menu, menuInflater);
 
         menuInflater.inflate(R.menu.toolbar_time, menu);
+        menuInflater.inflate(R.menu.toolbar_rate, menu);
     }
 
     @Override
@@ -117,6 +153,7 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         super.onPrepareOptionsMenu(menu);
 
         menu.findItem(timeMenu).setChecked(true);
+        menu.findItem(rateMenu).setChecked(true);
     }
 
     @Override
@@ -134,6 +171,19 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
 
                 return true;
 
+            case R.id.menu_rate_total:
+            case R.id.menu_rate_second:
+            case R.id.menu_rate_minute:
+                rateMenu = menuItem.getItemId();
+                menuItem.setChecked(true);
+
+                // Rates are computed from buckets already read.
+                if (metricSeries != null) {
+                    setUpChartData(null);
+                }
+
+                return true;
+
             default:
                 return super.onOptionsItemSelected(menuItem);
         }
@@ -157,6 +207,10 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         contentLayout.setColorSchemeResources(ColorSchemer.getScheme());
     }
 
+    private void setUpChart() {
+        chart.setViewportChangeListener(this);
+    }
+
     @Override
     public void onRefresh() {
         setUpMetricDataForced();
@@ -170,12 +224,12 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
 
     @OnClick(R.id.button_retry)
     public void setUpMetricData() {
-        if (metricBucket == null) {
+        if (metricSeries == null) {
             showProgress();
             timeMenu = R.id.menu_time_hour;
             setUpMetricDataForced();
         } else {
-            setUpMetricData(metricBucket);
+            setUpMetricData(metricSeries);
         }
     }
 
@@ -207,142 +261,89 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
     }
 
     private long getBuckets() {
-        return (60);
+        return getBuckets(getMetricFinishTime().getTime() - getMetricStartTime().getTime());
     }
 
+    private int getBuckets(long duration) {
+        return Buckets.getCount(getChartWidth(), getBucketWidth(), duration);
+    }
 
+    private int getChartWidth() {
+        // The chart is not measured before the first layout pass, the screen is a good approximation.
+        if (chart.getWidth() == 0) {
+            return getResources().getDisplayMetrics().widthPixels;
+        }
 
-    private void showProgress() {
-        ViewDirector.of(this).using(R.id.animator).show(R.id.progress);
+        return chart.getWidth();
     }
 
-    private Metric getMetric() {
-        return getArguments().getParcelable(Fragments.Arguments.METRIC);
+    private float getBucketWidth() {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, Defaults.BUCKET_WIDTH,
+                getResources().getDisplayMetrics());
     }
 
-    private void setUpMetricData(List<MetricBucket> metricDataList) {
-        this.metricBucket = new ArrayList<>();
-
-        sortMetricData(metricBucket);
-
-        setUpChartLine();
-        setUpChartArea();
 
-        hideRefreshing();
 
-        showChart();
+    private void showProgress() {
+        ViewDirector.of(this).using(R.id.animator).show(R.id.progress);
     }
 
-    private void sortMetricData(List<MetricBucket> metricBucketList) {
-        Collections.sort(metricBucketList, new MetricBucketComparator());
+    private Metric getMetric() {
+        return getArguments().getParcelable(Fragments.Arguments.METRIC);
     }
 
-    private void setUpChartLine() {
-        List<PointValue> chartPoints = getChartPoints();
-        List<AxisValue> chartAxisPoints = getChartAxisPoints();
+    private void setUpMetricData(MetricSeries metricSeries) {
+        this.metricSeries = metricSeries;
 
-        Line chartLine = new Line(chartPoints)
-                .setColor(getResources().getColor(R.color.background_primary_dark))
-                .setCubic(true)
-                .setHasPoints(false);
+        setUpChartData(null);
+    }
 
-        LineChartData chartData = new LineChartData()
-                .setLines(Collections.singletonList(chartLine));
-        chartData.setAxisXBottom(new Axis()
-                .setValues(chartAxisPoints));
-        chartData.setAxisYLeft(new Axis()
-                .setHasLines(true));
+    private void setUpChartData(@Nullable Viewport chartViewport) {
+        tearDownChartData();
 
-        chart.setLineChartData(chartData);
+        chartDataTask = new ChartDataTask(this, metricSeries,
+                getMetricStartTime().getTime(), getMetricFinishTime().getTime(), timeMenu,
+                getRateUnit(), getChartWidth(), getResources().getColor(R.color.background_primary_dark),
+                chartViewport);
+        chartDataTask.start();
     }
 
-    private List<PointValue> getChartPoints() {
-        List<PointValue> chartPoints = new ArrayList<>(metricBucket.size());
+    private long getRateUnit() {
+        switch (rateMenu) {
+            case R.id.menu_rate_second:
+                return TimeUnit.SECONDS.toMillis(1);
 
-        for (MetricBucket metricBucket : this.metricBucket) {
-            float chartPointHorizontal = getChartRelativeTimestamp(metricBucket.getStartTimestamp());
-            float chartPointVertical = metricBucket.isEmpty()
-                    ? 0 : Float.valueOf(metricBucket.getValue());
+            case R.id.menu_rate_minute:
+                return TimeUnit.MINUTES.toMillis(1);
 
-            chartPoints.add(new PointValue(chartPointHorizontal, chartPointVertical));
+            default:
+                return 0;
         }
-
-        return chartPoints;
     }
 
-    private List<AxisValue> getChartAxisPoints() {
-        List<AxisValue> chartAxisPoints = new ArrayList<>();
-
-        Date chartStartTime = getMetricStartTime();
-        Date chartFinishTime = getMetricFinishTime();
-
-        Calendar chartCalendar = GregorianCalendar.getInstance();
-        chartCalendar.setTime(chartStartTime);
-        chartCalendar.set(Calendar.MINUTE, 0);
-        chartCalendar.set(Calendar.SECOND, 0);
-        chartCalendar.set(Calendar.MILLISECOND, 0);
-
-
-        while (chartCalendar.getTime().before(chartFinishTime)) {
-            float chartAxisPointHorizontal = getChartRelativeTimestamp(chartCalendar.getTime().getTime());
-            String chartAxisPointHorizontalLabel = "";
-
-            switch (timeMenu){
-                case R.id.menu_time_hour:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+    private void setUpChartData(long chartTime, LineChartData chartData, @Nullable Viewport chartViewport) {
+        this.chartTime = chartTime;
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.MINUTE, 1);
-                    break;
-
-                case R.id.menu_time_day:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
-
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 1);
-                    break;
-
-                case R.id.menu_time_week:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
-
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24);
-                    break;
-
-                case R.id.menu_time_month:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
-
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24*3);
-                    break;
-
-                case R.id.menu_time_year:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+        chart.setLineChartData(chartData);
+        setUpChartArea();
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24*7);
-                    break;
+        if (chartViewport != null) {
+            chart.setCurrentViewport(chartViewport);
+        }
 
-                default:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+        hideRefreshing();
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.MINUTE, 1);
-            }
+        showChart();
+    }
 
+    private void tearDownChartData() {
+        if (chartDataTask != null) {
+            chartDataTask.cancel(false);
         }
-
-        return chartAxisPoints;
     }
 
     private long getChartRelativeTimestamp(long timestamp) {
-        return timestamp - getMetricStartTime().getTime();
+        return timestamp - chartTime;
     }
 
     private void setUpChartArea() {
@@ -363,6 +364,56 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         chart.setZoomEnabled(true);
     }
 
+    @Override
+    public void onViewportChanged(Viewport viewport) {
+        chart.removeCallbacks(chartZoomAction);
+
+        if (metricSeries != null) {
+            chart.postDelayed(chartZoomAction, Defaults.ZOOM_DELAY);
+        }
+    }
+
+    private void setUpMetricDataZoomed() {
+        Viewport zoomViewport = chart.getCurrentViewport();
+
+        int zoomBuckets = 0;
+        long zoomStartTime = 0;
+        long zoomFinishTime = 0;
+
+        for (int bucket = 0; bucket < metricSeries.size(); bucket++) {
+            float chartPointHorizontal = getChartRelativeTimestamp(metricSeries.getStartTimestamp(bucket));
+
+            if ((chartPointHorizontal >= zoomViewport.left) && (chartPointHorizontal <= zoomViewport.right)) {
+                if (zoomBuckets == 0) {
+                    zoomStartTime = metricSeries.getStartTimestamp(bucket);
+                }
+
+                zoomFinishTime = metricSeries.getEndTimestamp(bucket);
+                zoomBuckets++;
+            }
+        }
+
+        if (zoomBuckets == 0) {
+            return;
+        }
+
+        int zoomBucketsCount = getBuckets(zoomFinishTime - zoomStartTime);
+
+        // Zooming in until displayed buckets get twice wider than requested reveals no details.
+        if (zoomBuckets * 2 > zoomBucketsCount) {
+            return;
+        }
+
+        BackendClient.of(this).getMetricData(getMetric(), zoomBucketsCount,
+                new Date(zoomStartTime), new Date(zoomFinishTime), new MetricDataZoomCallback());
+    }
+
+    private void setUpMetricDataZoomed(MetricSeries zoomSeries) {
+        this.metricSeries = metricSeries.merge(zoomSeries);
+
+        setUpChartData(new Viewport(chart.getCurrentViewport()));
+    }
+
     private void hideRefreshing() {
         contentLayout.setRefreshing(false);
     }
@@ -390,11 +441,11 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         Icepick.saveInstanceState(this, state);
     }
 
-    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<List<MetricBucket>> {
+    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<MetricSeries> {
         @Override
-        public void onSuccess(List<MetricBucket> metricBuckets) {
-            if (!metricBuckets.isEmpty()) {
-                getMetricFragment().setUpMetricData(metricBuckets);
+        public void onSuccess(MetricSeries metricSeries) {
+            if (metricSeries.size() != 0) {
+                getMetricFragment().setUpMetricData(metricSeries);
             } else {
                 getMetricFragment().showMessage();
             }
@@ -412,13 +463,172 @@ public final class MetricCounterFragment extends Fragment implements SwipeRefres
         }
     }
 
-    private static final class MetricBucketComparator implements Comparator<MetricBucket> {
+    private static final class MetricDataZoomCallback extends AbstractSupportFragmentCallback<MetricSeries> {
         @Override
-        public int compare(MetricBucket leftMetricBucket, MetricBucket rightMetricBucket) {
-            Date leftMetricBucketTimestamp = new Date(leftMetricBucket.getStartTimestamp());
-            Date rightMetricBucketTimestamp = new Date(rightMetricBucket.getStartTimestamp());
+        public void onSuccess(MetricSeries metricSeries) {
+            getMetricFragment().setUpMetricDataZoomed(metricSeries);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Metric data zooming failed.");
+        }
+
+        private MetricCounterFragment getMetricFragment() {
+            return (MetricCounterFragment) getSupportFragment();
+        }
+    }
+
+    private static final class ChartDataTask extends ChartTask<MetricCounterFragment, LineChartData> {
+        private final MetricSeries metricSeries;
+
+        private final long chartStartTime;
+        private final long chartFinishTime;
+        private final int timeMenu;
+        private final long rateUnit;
+        private final int chartWidth;
+
+        @ColorInt
+        private final int chartColor;
+
+        private final Viewport chartViewport;
+
+        ChartDataTask(@NonNull MetricCounterFragment fragment, @NonNull MetricSeries metricSeries,
+                      long chartStartTime, long chartFinishTime, @IdRes int timeMenu, long rateUnit,
+                      int chartWidth, @ColorInt int chartColor, @Nullable Viewport chartViewport) {
+            super(fragment);
+
+            this.metricSeries = metricSeries;
+
+            this.chartStartTime = chartStartTime;
+            this.chartFinishTime = chartFinishTime;
+            this.timeMenu = timeMenu;
+            this.rateUnit = rateUnit;
+            this.chartWidth = chartWidth;
+
+            this.chartColor = chartColor;
+
+            this.chartViewport = chartViewport;
+        }
+
+        @Override
+        protected LineChartData prepare() {
+            // More points than pixels only make the chart slower to draw.
+            Line chartLine = new Line(getChartPoints(Downsampler.downsample(getChartSeries(), chartWidth)))
+                .setColor(chartColor)
+                .setCubic(true)
+                .setHasPoints(false);
+
+            LineChartData chartData = new LineChartData()
+                .setLines(Collections.singletonList(chartLine));
+            chartData.setAxisXBottom(new Axis()
+                .setValues(getChartAxisPoints()));
+            chartData.setAxisYLeft(new Axis()
+                .setHasLines(true));
+
+            return chartData;
+        }
+
+        @Override
+        protected void apply(@NonNull MetricCounterFragment fragment, LineChartData chartData) {
+            fragment.setUpChartData(chartStartTime, chartData, chartViewport);
+        }
+
+        private MetricSeries getChartSeries() {
+            if (rateUnit == 0) {
+                return metricSeries;
+            }
+
+            return Rates.getRates(metricSeries, rateUnit);
+        }
+
+        private List<PointValue> getChartPoints(MetricSeries chartSeries) {
+            List<PointValue> chartPoints = new ArrayList<>(chartSeries.size());
+
+            for (int bucket = 0; bucket < chartSeries.size(); bucket++) {
+                float chartPointHorizontal = getChartRelativeTimestamp(chartSeries.getStartTimestamp(bucket));
+                float chartPointVertical = chartSeries.isEmpty(bucket)
+                        ? 0 : (float) chartSeries.getValue(bucket);
+
+                chartPoints.add(new PointValue(chartPointHorizontal, chartPointVertical));
+            }
+
+            return chartPoints;
+        }
+
+        private List<AxisValue> getChartAxisPoints() {
+            List<AxisValue> chartAxisPoints = new ArrayList<>();
+
+            Date chartStartTime = new Date(this.chartStartTime);
+            Date chartFinishTime = new Date(this.chartFinishTime);
+
+            Calendar chartCalendar = GregorianCalendar.getInstance();
+            chartCalendar.setTime(chartStartTime);
+            chartCalendar.set(Calendar.MINUTE, 0);
+            chartCalendar.set(Calendar.SECOND, 0);
+            chartCalendar.set(Calendar.MILLISECOND, 0);
+
+
+            while (chartCalendar.getTime().before(chartFinishTime)) {
+                float chartAxisPointHorizontal = getChartRelativeTimestamp(chartCalendar.getTime().getTime());
+                String chartAxisPointHorizontalLabel = "";
+
+                switch (timeMenu){
+                    case R.id.menu_time_hour:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.MINUTE, 1);
+                        break;
+
+                    case R.id.menu_time_day:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 1);
+                        break;
+
+                    case R.id.menu_time_week:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24);
+                        break;
+
+                    case R.id.menu_time_month:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24*3);
+                        break;
+
+                    case R.id.menu_time_year:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24*7);
+                        break;
+
+                    default:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.MINUTE, 1);
+                }
+
+            }
+
+            return chartAxisPoints;
+        }
 
-            return leftMetricBucketTimestamp.compareTo(rightMetricBucketTimestamp);
+        private long getChartRelativeTimestamp(long timestamp) {
+            return timestamp - chartStartTime;
         }
     }
 }
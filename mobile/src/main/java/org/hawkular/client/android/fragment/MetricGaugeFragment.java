@@ -17,29 +17,38 @@
 package org.hawkular.client.android.fragment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.hawkular.client.android.R;
 import org.hawkular.client.android.backend.BackendClient;
 import org.hawkular.client.android.backend.model.Metric;
-import org.hawkular.client.android.backend.model.MetricBucket;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.util.Buckets;
+import org.hawkular.client.android.util.ChartTask;
 import org.hawkular.client.android.util.ColorSchemer;
+import org.hawkular.client.android.util.Downsampler;
 import org.hawkular.client.android.util.Formatter;
 import org.hawkular.client.android.util.Fragments;
+import org.hawkular.client.android.util.MetricRing;
 import org.hawkular.client.android.util.Time;
 import org.hawkular.client.android.util.ViewDirector;
 import org.jboss.aerogear.android.pipe.callback.AbstractSupportFragmentCallback;
 
+import android.graphics.DashPathEffect;
 import android.os.Bundle;
+import android.support.annotation.ColorInt;
 import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -52,6 +61,8 @@ import butterknife.ButterKnife;
 import butterknife.OnClick;
 import icepick.Icepick;
 import icepick.State;
+import lecho.lib.hellocharts.formatter.AxisValueFormatter;
+import lecho.lib.hellocharts.listener.ViewportChangeListener;
 import lecho.lib.hellocharts.model.Axis;
 import lecho.lib.hellocharts.model.AxisValue;
 import lecho.lib.hellocharts.model.Line;
@@ -65,8 +76,32 @@ import timber.log.Timber;
  * Metric fragment.
  * <p/>
  * Displays metric gauge data as a line chart.
+ * A count of buckets depends on the chart width, zooming the chart in reads more detailed data.
+ * <p/>
+ * In the live mode only the latest buckets are read periodically. They are kept in a {@link MetricRing}
+ * of the chart size and chart points are moved to them in place instead of building the chart again.
+ * <p/>
+ * Statistics show minimums and maximums of buckets as a band and their percentiles as a dashed line,
+ * upper bounds of percentiles if buckets are downsampled, see {@link Downsampler}.
+ * They are taken from bucket fields and prepared together with the chart, off the main thread.
  */
-public final class MetricGaugeFragment extends Fragment implements SwipeRefreshLayout.OnRefreshListener {
+public final class MetricGaugeFragment extends Fragment implements SwipeRefreshLayout.OnRefreshListener,
+        ViewportChangeListener {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int BUCKET_WIDTH = 4;
+
+        public static final long ZOOM_DELAY = 500;
+
+        public static final long LIVE_ANIMATION = 300;
+
+        public static final int STATISTICS_TRANSPARENCY = 32;
+        public static final int STATISTICS_OPACITY = 255;
+        public static final int STATISTICS_LINE_WIDTH = 1;
+        public static final float STATISTICS_DASH = 12;
+    }
 
     @BindView(R.id.metric_name)
     TextView metric_name;
@@ -78,12 +113,39 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
     SwipeRefreshLayout contentLayout;
 
     @State
-    ArrayList<MetricBucket> metricBucket;
+    MetricSeries metricSeries;
 
     @State
     @IdRes
     int timeMenu;
 
+    @State
+    @IdRes
+    int liveMenu = R.id.menu_live_off;
+
+    @State
+    boolean statistics;
+
+    private long chartTime;
+
+    private MetricRing metricRing;
+
+    private ChartDataTask chartDataTask;
+
+    private final Runnable chartZoomAction = new Runnable() {
+        @Override
+        public void run() {
+            setUpMetricDataZoomed();
+        }
+    };
+
+    private final Runnable liveAction = new Runnable() {
+        @Override
+        public void run() {
+            setUpMetricDataLive();
+        }
+    };
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle state) {
@@ -101,6 +163,7 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         setUpMenu();
 
         setUpRefreshing();
+        setUpChart();
 
         setUpMetricData();
     }
@@ -110,6 +173,8 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         super.onCreateOptionsMenu(menu, menuInflater);
 
         menuInflater.inflate(R.menu.toolbar_time, menu);
+        menuInflater.inflate(R.menu.toolbar_live, menu);
+        menuInflater.inflate(R.menu.toolbar_statistics, menu);
     }
 
     @Override
@@ -117,6 +182,8 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         super.onPrepareOptionsMenu(menu);
 
         menu.findItem(timeMenu).setChecked(true);
+        menu.findItem(liveMenu).setChecked(true);
+        menu.findItem(R.id.menu_statistics).setChecked(statistics);
     }
 
     @Override
@@ -134,12 +201,49 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
 
                 return true;
 
+            case R.id.menu_live_off:
+            case R.id.menu_live_seconds:
+            case R.id.menu_live_half_minute:
+            case R.id.menu_live_minute:
+                boolean wasLive = isLive();
+
+                liveMenu = menuItem.getItemId();
+                menuItem.setChecked(true);
+
+                setUpLiveMode(wasLive);
+
+                return true;
+
+            case R.id.menu_statistics:
+                statistics = !statistics;
+                menuItem.setChecked(statistics);
+
+                if (metricSeries != null) {
+                    setUpChartData(null);
+                }
+
+                return true;
+
             default:
                 return super.onOptionsItemSelected(menuItem);
         }
     }
 
 
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        setUpLive();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+
+        tearDownLive();
+    }
+
     private void setUpState(Bundle state) {
         Icepick.restoreInstanceState(this, state);
     }
@@ -157,6 +261,10 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         contentLayout.setColorSchemeResources(ColorSchemer.getScheme());
     }
 
+    private void setUpChart() {
+        chart.setViewportChangeListener(this);
+    }
+
     @Override
     public void onRefresh() {
         setUpMetricDataForced();
@@ -170,12 +278,12 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
 
     @OnClick(R.id.button_retry)
     public void setUpMetricData() {
-        if (metricBucket == null) {
+        if (metricSeries == null) {
             showProgress();
             timeMenu = R.id.menu_time_hour;
             setUpMetricDataForced();
         } else {
-            setUpMetricData(metricBucket);
+            setUpMetricData(metricSeries);
         }
     }
 
@@ -207,7 +315,25 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
     }
 
     private long getBuckets() {
-        return (60);
+        return getBuckets(getMetricFinishTime().getTime() - getMetricStartTime().getTime());
+    }
+
+    private int getBuckets(long duration) {
+        return Buckets.getCount(getChartWidth(), getBucketWidth(), duration);
+    }
+
+    private int getChartWidth() {
+        // The chart is not measured before the first layout pass, the screen is a good approximation.
+        if (chart.getWidth() == 0) {
+            return getResources().getDisplayMetrics().widthPixels;
+        }
+
+        return chart.getWidth();
+    }
+
+    private float getBucketWidth() {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, Defaults.BUCKET_WIDTH,
+                getResources().getDisplayMetrics());
     }
 
 
@@ -219,146 +345,209 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         return getArguments().getParcelable(Fragments.Arguments.METRIC);
     }
 
-    private void setUpMetricData(List<MetricBucket> metricDataList) {
-        this.metricBucket = new ArrayList<>(metricDataList);
+    private void setUpMetricData(MetricSeries metricSeries) {
+        this.metricSeries = metricSeries;
+
+        setUpChartData(null);
+    }
+
+    private void setUpChartData(@Nullable Viewport chartViewport) {
+        tearDownChartData();
+
+        chartDataTask = new ChartDataTask(this, metricSeries,
+                getMetricStartTime().getTime(), getMetricFinishTime().getTime(), timeMenu, isLive(), statistics,
+                getChartWidth(), getResources().getColor(R.color.background_primary_dark),
+                getResources().getColor(R.color.background_secondary),
+                getResources().getColor(R.color.background_window), chartViewport);
+        chartDataTask.start();
+    }
 
-        sortMetricData(metricBucket);
+    private void setUpChartData(long chartTime, LineChartData chartData, @Nullable Viewport chartViewport) {
+        this.chartTime = chartTime;
 
-        setUpChartLine();
+        chart.setLineChartData(chartData);
         setUpChartArea();
 
+        if (chartViewport != null) {
+            chart.setCurrentViewport(chartViewport);
+        }
+
         hideRefreshing();
 
         showChart();
+
+        setUpMetricRing();
+        setUpLive();
     }
 
-    private void sortMetricData(List<MetricBucket> metricBucketList) {
-        Collections.sort(metricBucketList, new MetricBucketComparator());
+    private void tearDownChartData() {
+        if (chartDataTask != null) {
+            chartDataTask.cancel(false);
+        }
     }
 
-    private void setUpChartLine() {
-        List<PointValue> chartPoints = getChartPoints();
-        List<AxisValue> chartAxisPoints = getChartAxisPoints();
+    private long getChartRelativeTimestamp(long timestamp) {
+        return timestamp - chartTime;
+    }
 
-        Line chartLine = new Line(chartPoints)
-            .setColor(getResources().getColor(R.color.background_primary_dark))
-            .setCubic(true)
-            .setHasPoints(false);
+    private void setUpChartArea() {
+        Viewport maximumViewport = new Viewport(chart.getMaximumViewport());
 
-        LineChartData chartData = new LineChartData()
-            .setLines(Collections.singletonList(chartLine));
-        chartData.setAxisXBottom(new Axis()
-            .setValues(chartAxisPoints));
-        chartData.setAxisYLeft(new Axis()
-            .setHasLines(true));
+        maximumViewport.bottom = 0;
+        maximumViewport.top = (float) (maximumViewport.top * 1.1);
 
-        chart.setLineChartData(chartData);
-    }
+        chart.setMaximumViewport(maximumViewport);
 
-    private List<PointValue> getChartPoints() {
-        List<PointValue> chartPoints = new ArrayList<>(metricBucket.size());
+        Viewport currentViewport = new Viewport(chart.getMaximumViewport());
 
-        for (MetricBucket metricBucket : this.metricBucket) {
-            float chartPointHorizontal = getChartRelativeTimestamp(metricBucket.getStartTimestamp());
-            float chartPointVertical = metricBucket.isEmpty()
-                    ? 0 : Float.valueOf(metricBucket.getValue());
+        currentViewport.left = (float) (chart.getMaximumViewport().left * 1.9);
+        currentViewport.right = (float) (chart.getMaximumViewport().right * 0.1);
 
-            chartPoints.add(new PointValue(chartPointHorizontal, chartPointVertical));
-        }
+        chart.setCurrentViewport(currentViewport);
 
-        return chartPoints;
+        chart.setZoomEnabled(true);
     }
 
-    private List<AxisValue> getChartAxisPoints() {
-        List<AxisValue> chartAxisPoints = new ArrayList<>();
+    @Override
+    public void onViewportChanged(Viewport viewport) {
+        chart.removeCallbacks(chartZoomAction);
 
-        Date chartStartTime = getMetricStartTime();
-        Date chartFinishTime = getMetricFinishTime();
+        // Live charts move their viewport on their own.
+        if ((metricSeries != null) && !isLive()) {
+            chart.postDelayed(chartZoomAction, Defaults.ZOOM_DELAY);
+        }
+    }
 
-        Calendar chartCalendar = GregorianCalendar.getInstance();
-        chartCalendar.setTime(chartStartTime);
-        chartCalendar.set(Calendar.MINUTE, 0);
-        chartCalendar.set(Calendar.SECOND, 0);
-        chartCalendar.set(Calendar.MILLISECOND, 0);
+    private void setUpMetricDataZoomed() {
+        Viewport zoomViewport = chart.getCurrentViewport();
 
-        while (chartCalendar.getTime().before(chartFinishTime)) {
-            float chartAxisPointHorizontal = getChartRelativeTimestamp(chartCalendar.getTime().getTime());
-            String chartAxisPointHorizontalLabel = "";
+        int zoomBuckets = 0;
+        long zoomStartTime = 0;
+        long zoomFinishTime = 0;
 
-            switch (timeMenu) {
-                case R.id.menu_time_hour:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+        for (int bucket = 0; bucket < metricSeries.size(); bucket++) {
+            float chartPointHorizontal = getChartRelativeTimestamp(metricSeries.getStartTimestamp(bucket));
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.MINUTE, 1);
-                    break;
+            if ((chartPointHorizontal >= zoomViewport.left) && (chartPointHorizontal <= zoomViewport.right)) {
+                if (zoomBuckets == 0) {
+                    zoomStartTime = metricSeries.getStartTimestamp(bucket);
+                }
 
-                case R.id.menu_time_day:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+                zoomFinishTime = metricSeries.getEndTimestamp(bucket);
+                zoomBuckets++;
+            }
+        }
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 1);
-                    break;
+        if (zoomBuckets == 0) {
+            return;
+        }
 
-                case R.id.menu_time_week:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+        int zoomBucketsCount = getBuckets(zoomFinishTime - zoomStartTime);
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24);
-                    break;
+        // Zooming in until displayed buckets get twice wider than requested reveals no details.
+        if (zoomBuckets * 2 > zoomBucketsCount) {
+            return;
+        }
 
-                case R.id.menu_time_month:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+        BackendClient.of(this).getMetricData(getMetric(), zoomBucketsCount,
+                new Date(zoomStartTime), new Date(zoomFinishTime), new MetricDataZoomCallback());
+    }
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24 * 3);
-                    break;
+    private void setUpMetricDataZoomed(MetricSeries zoomSeries) {
+        this.metricSeries = metricSeries.merge(zoomSeries);
 
-                case R.id.menu_time_year:
-                    chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+        setUpChartData(new Viewport(chart.getCurrentViewport()));
+    }
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.HOUR, 24 * 7);
-                    break;
+    private boolean isLive() {
+        return liveMenu != R.id.menu_live_off;
+    }
 
-                default:
-                    chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+    private long getLiveInterval() {
+        switch (liveMenu) {
+            case R.id.menu_live_seconds:
+                return TimeUnit.SECONDS.toMillis(10);
 
-                    chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
-                            .setLabel(chartAxisPointHorizontalLabel));
-                    chartCalendar.add(Calendar.MINUTE, 1);
-            }
+            case R.id.menu_live_half_minute:
+                return TimeUnit.SECONDS.toMillis(30);
+
+            default:
+                return TimeUnit.MINUTES.toMillis(1);
+        }
+    }
 
+    private void setUpLiveMode(boolean wasLive) {
+        if (metricSeries == null) {
+            return;
         }
 
-        return chartAxisPoints;
+        if (isLive() && !wasLive) {
+            // The chart axis follows the chart time range in the live mode.
+            setUpChartData(null);
+        } else if (isLive()) {
+            setUpLive();
+        } else if (wasLive) {
+            tearDownLive();
+
+            setUpMetricDataForced();
+        }
     }
 
-    private long getChartRelativeTimestamp(long timestamp) {
-        return timestamp - getMetricStartTime().getTime();
+    private void setUpMetricRing() {
+        if (!isLive()) {
+            metricRing = null;
+            return;
+        }
+
+        metricRing = new MetricRing(metricSeries.size());
+        metricRing.add(metricSeries);
     }
 
-    private void setUpChartArea() {
-        Viewport maximumViewport = new Viewport(chart.getMaximumViewport());
+    private void setUpLive() {
+        tearDownLive();
 
-        maximumViewport.bottom = 0;
-        maximumViewport.top = (float) (maximumViewport.top * 1.1);
+        if (!isLive() || !isResumed() || (metricRing == null) || (metricRing.size() == 0)) {
+            return;
+        }
 
-        chart.setMaximumViewport(maximumViewport);
+        chart.postDelayed(liveAction, getLiveInterval());
+    }
 
-        Viewport currentViewport = new Viewport(chart.getMaximumViewport());
+    private void tearDownLive() {
+        chart.removeCallbacks(liveAction);
+    }
 
-        currentViewport.left = (float) (chart.getMaximumViewport().left * 1.9);
-        currentViewport.right = (float) (chart.getMaximumViewport().right * 0.1);
+    private void setUpMetricDataLive() {
+        int latestBucket = metricRing.size() - 1;
 
-        chart.setCurrentViewport(currentViewport);
+        long bucketDuration = metricRing.getEndTimestamp(latestBucket) - metricRing.getStartTimestamp(latestBucket);
+        long currentTime = getMetricFinishTime().getTime();
 
-        chart.setZoomEnabled(true);
+        // The latest bucket might be unfinished, it is read again together with buckets started after it.
+        long liveStartTime = Math.max(metricRing.getStartTimestamp(latestBucket),
+                currentTime - metricRing.capacity() * bucketDuration);
+        int liveBuckets = (int) ((currentTime - liveStartTime) / bucketDuration) + 1;
+        long liveFinishTime = liveStartTime + liveBuckets * bucketDuration;
+
+        BackendClient.of(this).getMetricData(getMetric(), liveBuckets,
+                new Date(liveStartTime), new Date(liveFinishTime), new MetricDataLiveCallback());
+    }
+
+    private void setUpMetricDataLive(MetricSeries liveSeries) {
+        metricRing.add(liveSeries);
+
+        List<PointValue> chartPoints = chart.getLineChartData().getLines().get(0).getValues();
+
+        for (int bucket = 0; bucket < Math.min(metricRing.size(), chartPoints.size()); bucket++) {
+            float chartPointHorizontal = getChartRelativeTimestamp(metricRing.getStartTimestamp(bucket));
+            float chartPointVertical = metricRing.isEmpty(bucket) ? 0 : (float) metricRing.getValue(bucket);
+
+            chartPoints.get(bucket).setTarget(chartPointHorizontal, chartPointVertical);
+        }
+
+        chart.startDataAnimation(Defaults.LIVE_ANIMATION);
+
+        setUpLive();
     }
 
     private void hideRefreshing() {
@@ -388,15 +577,11 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         Icepick.saveInstanceState(this, state);
     }
 
-    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<List<MetricBucket>> {
+    private static final class MetricDataCallback extends AbstractSupportFragmentCallback<MetricSeries> {
         @Override
-        public void onSuccess(List<MetricBucket> metricBuckets) {
-            if (!metricBuckets.isEmpty()) {
-                /*List<MetricBucket> formatted = new ArrayList<>();
-                for(MetricGaugeBucket metricGaugeBucket : metricBuckets){
-                    formatted.add(metricGaugeBucket);
-                }*/
-                getMetricFragment().setUpMetricData(metricBuckets);
+        public void onSuccess(MetricSeries metricSeries) {
+            if (metricSeries.size() != 0) {
+                getMetricFragment().setUpMetricData(metricSeries);
             } else {
                 getMetricFragment().showMessage();
             }
@@ -414,13 +599,302 @@ public final class MetricGaugeFragment extends Fragment implements SwipeRefreshL
         }
     }
 
-    private static final class MetricBucketComparator implements Comparator<MetricBucket> {
+    private static final class MetricDataZoomCallback extends AbstractSupportFragmentCallback<MetricSeries> {
+        @Override
+        public void onSuccess(MetricSeries metricSeries) {
+            getMetricFragment().setUpMetricDataZoomed(metricSeries);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Metric data zooming failed.");
+        }
+
+        private MetricGaugeFragment getMetricFragment() {
+            return (MetricGaugeFragment) getSupportFragment();
+        }
+    }
+
+    private static final class MetricDataLiveCallback extends AbstractSupportFragmentCallback<MetricSeries> {
+        @Override
+        public void onSuccess(MetricSeries metricSeries) {
+            getMetricFragment().setUpMetricDataLive(metricSeries);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Metric data live fetching failed.");
+
+            getMetricFragment().setUpLive();
+        }
+
+        private MetricGaugeFragment getMetricFragment() {
+            return (MetricGaugeFragment) getSupportFragment();
+        }
+    }
+
+    private static final class ChartTimeFormatter implements AxisValueFormatter {
+        private final long chartTime;
+        private final int timeMenu;
+
+        ChartTimeFormatter(long chartTime, @IdRes int timeMenu) {
+            this.chartTime = chartTime;
+            this.timeMenu = timeMenu;
+        }
+
         @Override
-        public int compare(MetricBucket leftMetricBucket, MetricBucket rightMetricBucket) {
-            Date leftMetricBucketTimestamp = new Date(leftMetricBucket.getStartTimestamp());
-            Date rightMetricBucketTimestamp = new Date(rightMetricBucket.getStartTimestamp());
+        public int formatValueForManualAxis(char[] formattedValue, AxisValue axisValue) {
+            return format(formattedValue, axisValue.getValue());
+        }
+
+        @Override
+        public int formatValueForAutoGeneratedAxis(char[] formattedValue, float value, int autoDecimalDigits) {
+            return format(formattedValue, value);
+        }
+
+        private int format(char[] formattedValue, float value) {
+            String label = getLabel(chartTime + (long) value);
+            int labelLength = Math.min(label.length(), formattedValue.length);
+
+            // Formatted values are expected at the end of the buffer.
+            label.getChars(label.length() - labelLength, label.length(),
+                    formattedValue, formattedValue.length - labelLength);
+
+            return labelLength;
+        }
+
+        private String getLabel(long time) {
+            switch (timeMenu) {
+                case R.id.menu_time_hour:
+                case R.id.menu_time_day:
+                    return Formatter.formatTime(time);
+
+                default:
+                    return Formatter.formatDate(time);
+            }
+        }
+    }
+
+    private static final class ChartDataTask extends ChartTask<MetricGaugeFragment, LineChartData> {
+        private final MetricSeries metricSeries;
+
+        private final long chartStartTime;
+        private final long chartFinishTime;
+        private final int timeMenu;
+        private final boolean chartLive;
+        private final boolean chartStatistics;
+        private final int chartWidth;
+
+        @ColorInt
+        private final int chartColor;
+
+        @ColorInt
+        private final int chartStatisticsColor;
+
+        @ColorInt
+        private final int chartBackgroundColor;
+
+        private final Viewport chartViewport;
+
+        ChartDataTask(@NonNull MetricGaugeFragment fragment, @NonNull MetricSeries metricSeries,
+                      long chartStartTime, long chartFinishTime, @IdRes int timeMenu, boolean chartLive,
+                      boolean chartStatistics, int chartWidth, @ColorInt int chartColor,
+                      @ColorInt int chartStatisticsColor, @ColorInt int chartBackgroundColor,
+                      @Nullable Viewport chartViewport) {
+            super(fragment);
+
+            this.metricSeries = metricSeries;
+
+            this.chartStartTime = chartStartTime;
+            this.chartFinishTime = chartFinishTime;
+            this.timeMenu = timeMenu;
+            this.chartLive = chartLive;
+            this.chartStatistics = chartStatistics;
+            this.chartWidth = chartWidth;
+
+            this.chartColor = chartColor;
+            this.chartStatisticsColor = chartStatisticsColor;
+            this.chartBackgroundColor = chartBackgroundColor;
+
+            this.chartViewport = chartViewport;
+        }
+
+        @Override
+        protected LineChartData prepare() {
+            LineChartData chartData = new LineChartData()
+                .setLines(getChartLines(getChartSeries()));
+            chartData.setAxisXBottom(getChartAxis());
+            chartData.setAxisYLeft(new Axis()
+                .setHasLines(true));
+
+            return chartData;
+        }
+
+        @Override
+        protected void apply(@NonNull MetricGaugeFragment fragment, LineChartData chartData) {
+            fragment.setUpChartData(chartStartTime, chartData, chartViewport);
+        }
+
+        private Axis getChartAxis() {
+            // Live charts move out of the range fixed axis points are prepared for.
+            if (chartLive) {
+                return new Axis()
+                    .setAutoGenerated(true)
+                    .setFormatter(new ChartTimeFormatter(chartStartTime, timeMenu));
+            }
+
+            return new Axis()
+                .setValues(getChartAxisPoints());
+        }
+
+        private MetricSeries getChartSeries() {
+            // Live charts move their points in place, one point per bucket.
+            if (chartLive) {
+                return metricSeries;
+            }
+
+            // More points than pixels only make the chart slower to draw.
+            return Downsampler.downsample(metricSeries, chartWidth);
+        }
+
+        private List<Line> getChartLines(MetricSeries chartSeries) {
+            // Live charts move points of the first line only.
+            boolean chartStatistics = this.chartStatistics && !chartLive;
+
+            List<PointValue> chartPoints = new ArrayList<>(chartSeries.size());
+            List<PointValue> chartMinimumPoints = new ArrayList<>();
+            List<PointValue> chartMaximumPoints = new ArrayList<>();
+            List<PointValue> chartPercentilePoints = new ArrayList<>();
+
+            for (int bucket = 0; bucket < chartSeries.size(); bucket++) {
+                float chartPointHorizontal = getChartRelativeTimestamp(chartSeries.getStartTimestamp(bucket));
+                float chartPointVertical = chartSeries.isEmpty(bucket)
+                        ? 0 : (float) chartSeries.getValue(bucket);
+
+                chartPoints.add(new PointValue(chartPointHorizontal, chartPointVertical));
+
+                if (!chartStatistics || chartSeries.isEmpty(bucket)) {
+                    continue;
+                }
+
+                addChartPoint(chartMinimumPoints, chartPointHorizontal, chartSeries.getMinimum(bucket));
+                addChartPoint(chartMaximumPoints, chartPointHorizontal, chartSeries.getMaximum(bucket));
+                addChartPoint(chartPercentilePoints, chartPointHorizontal, chartSeries.getPercentile(bucket));
+            }
+
+            Line chartLine = new Line(chartPoints)
+                .setColor(chartColor)
+                .setCubic(true)
+                .setHasPoints(false);
+
+            if (!chartStatistics) {
+                return Collections.singletonList(chartLine);
+            }
+
+            // Areas are filled down to zero only, the area under minimums is covered with the background
+            // to leave the band between minimums and maximums. Lines are drawn in order, the band goes first.
+            Line chartMaximumLine = getChartStatisticsLine(chartMaximumPoints, chartStatisticsColor)
+                .setFilled(true)
+                .setAreaTransparency(Defaults.STATISTICS_TRANSPARENCY);
+            Line chartMinimumAreaLine = getChartStatisticsLine(chartMinimumPoints, chartBackgroundColor)
+                .setFilled(true)
+                .setAreaTransparency(Defaults.STATISTICS_OPACITY);
+            Line chartMinimumLine = getChartStatisticsLine(chartMinimumPoints, chartStatisticsColor);
+
+            Line chartPercentileLine = getChartStatisticsLine(chartPercentilePoints, chartColor);
+            chartPercentileLine.setPathEffect(
+                new DashPathEffect(new float[] {Defaults.STATISTICS_DASH, Defaults.STATISTICS_DASH}, 0));
+
+            return Arrays.asList(chartMaximumLine, chartMinimumAreaLine, chartMinimumLine,
+                chartLine, chartPercentileLine);
+        }
+
+        private void addChartPoint(List<PointValue> chartPoints, float chartPointHorizontal, double value) {
+            if (!Double.isNaN(value)) {
+                chartPoints.add(new PointValue(chartPointHorizontal, (float) value));
+            }
+        }
+
+        private Line getChartStatisticsLine(List<PointValue> chartPoints, @ColorInt int color) {
+            return new Line(chartPoints)
+                .setColor(color)
+                .setCubic(true)
+                .setHasPoints(false)
+                .setStrokeWidth(Defaults.STATISTICS_LINE_WIDTH);
+        }
+
+        private List<AxisValue> getChartAxisPoints() {
+            List<AxisValue> chartAxisPoints = new ArrayList<>();
+
+            Date chartStartTime = new Date(this.chartStartTime);
+            Date chartFinishTime = new Date(this.chartFinishTime);
+
+            Calendar chartCalendar = GregorianCalendar.getInstance();
+            chartCalendar.setTime(chartStartTime);
+            chartCalendar.set(Calendar.MINUTE, 0);
+            chartCalendar.set(Calendar.SECOND, 0);
+            chartCalendar.set(Calendar.MILLISECOND, 0);
+
+            while (chartCalendar.getTime().before(chartFinishTime)) {
+                float chartAxisPointHorizontal = getChartRelativeTimestamp(chartCalendar.getTime().getTime());
+                String chartAxisPointHorizontalLabel = "";
+
+                switch (timeMenu) {
+                    case R.id.menu_time_hour:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.MINUTE, 1);
+                        break;
+
+                    case R.id.menu_time_day:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 1);
+                        break;
+
+                    case R.id.menu_time_week:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24);
+                        break;
+
+                    case R.id.menu_time_month:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24 * 3);
+                        break;
+
+                    case R.id.menu_time_year:
+                        chartAxisPointHorizontalLabel = Formatter.formatDate(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.HOUR, 24 * 7);
+                        break;
+
+                    default:
+                        chartAxisPointHorizontalLabel = Formatter.formatTime(chartCalendar.getTime().getTime());
+
+                        chartAxisPoints.add(new AxisValue(chartAxisPointHorizontal)
+                                .setLabel(chartAxisPointHorizontalLabel));
+                        chartCalendar.add(Calendar.MINUTE, 1);
+                }
+
+            }
+
+            return chartAxisPoints;
+        }
 
-            return leftMetricBucketTimestamp.compareTo(rightMetricBucketTimestamp);
+        private long getChartRelativeTimestamp(long timestamp) {
+            return timestamp - chartStartTime;
         }
     }
 }
@@ -100,7 +100,7 @@ public final class MetricsFragment extends Fragment implements SwipeRefreshLayou
 
     @Override
     public void onRefresh() {
-        setUpMetricsForced();
+        BackendClient.of(this).refreshMetrics(getEnvironment(), getResource(), new MetricsCallback());
     }
 
     private void setUpMetricsForced() {
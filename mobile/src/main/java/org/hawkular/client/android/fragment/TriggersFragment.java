@@ -107,7 +107,7 @@ public final class TriggersFragment extends Fragment implements SwipeRefreshLayo
 
     @Override
     public void onRefresh() {
-        setUpTriggersForced();
+        BackendClient.of(this).refreshTriggers(new TriggersCallback());
     }
 
     private void setUpTriggersForced() {
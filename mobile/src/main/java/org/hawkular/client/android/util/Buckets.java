@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import java.util.concurrent.TimeUnit;
+
+import android.support.annotation.IntRange;
+
+/**
+ * Metric bucket utilities.
+ *
+ * Calculates a count of metric buckets worth reading for a chart of a specific width and time range.
+ */
+public final class Buckets {
+    private Buckets() {
+    }
+
+    public static final int MINIMUM = 1;
+    public static final int MAXIMUM = 500;
+
+    public static final long MINIMUM_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+    @IntRange(from = Buckets.MINIMUM, to = Buckets.MAXIMUM)
+    public static int getCount(@IntRange(from = 0) int chartWidth, float bucketWidth,
+                               @IntRange(from = 0) long duration) {
+        long count = (long) (chartWidth / bucketWidth);
+
+        // Buckets shorter than a usual collection interval are mostly empty.
+        count = Math.min(count, duration / MINIMUM_DURATION);
+
+        return (int) Math.max(MINIMUM, Math.min(MAXIMUM, count));
+    }
+}
@@ -14,20 +14,25 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.hawkular.client.android.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
 
 /**
  * Canonical Path.
  *
- * Accept string path and break convert into HashMap of components.
+ * Parses a string path into components in a single pass. Paths are immutable,
+ * the same strings parsed again return the same objects.
  */
 
-public class CanonicalPath {
+public final class CanonicalPath {
 
     public static final class Type {
         public static final String TENANT = "t";
@@ -39,111 +44,267 @@ public class CanonicalPath {
         public static final String METRIC_TYPE = "mt";
     }
 
-    private HashMap<String, Object> data = new HashMap<>();
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int PATHS = 512;
+    }
+
+    private static final char SEGMENT_SEPARATOR = '/';
+    private static final char TYPE_SEPARATOR = ';';
+
+    private static final String[] NO_RESOURCES = new String[0];
+
+    private static final LruCache<String, CanonicalPath> paths = new LruCache<>(Defaults.PATHS);
+
+    private final String path;
+
+    private String tenant;
+    private String feed;
+    private String environment;
+    private String resourceType;
+    private String metricType;
+    private String metric;
+    private String[] resources = NO_RESOURCES;
 
     private CanonicalPath(String path) {
-        String[] temp = path.split("/");
+        this.path = path;
 
-        for (String part : temp) {
-            String[] pair = part.split(";");
+        int segmentStart = 0;
 
-            switch (pair[0]) {
-                case Type.TENANT:
-                case Type.ENVIRONMENT:
-                case Type.FEED:
-                case Type.METRIC_TYPE:
-                case Type.METRIC:
-                case Type.RESOURCE_TYPE:
-                    data.put(pair[0], pair[1]);
-                    break;
+        while (segmentStart <= path.length()) {
+            int segmentEnd = path.indexOf(SEGMENT_SEPARATOR, segmentStart);
 
-                case Type.RESOURCE:
-                    if (data.containsKey(Type.RESOURCE)) {
-                        List<String> resources = (List<String>) data.get("r");
-                        resources.add(pair[1]);
-                    } else {
-                        List<String> resources = new LinkedList<>();
-                        resources.add(pair[1]);
-                        data.put(Type.RESOURCE, resources);
-                    }
+            if (segmentEnd < 0) {
+                segmentEnd = path.length();
             }
+
+            int typeEnd = path.indexOf(TYPE_SEPARATOR, segmentStart);
+
+            if ((typeEnd >= 0) && (typeEnd < segmentEnd)) {
+                setComponent(path, segmentStart, typeEnd, path.substring(typeEnd + 1, segmentEnd));
+            }
+
+            segmentStart = segmentEnd + 1;
+        }
+    }
+
+    private void setComponent(String path, int typeStart, int typeEnd, String value) {
+        int typeLength = typeEnd - typeStart;
+
+        if (isType(path, typeStart, typeLength, Type.TENANT)) {
+            tenant = value;
+        } else if (isType(path, typeStart, typeLength, Type.ENVIRONMENT)) {
+            environment = value;
+        } else if (isType(path, typeStart, typeLength, Type.FEED)) {
+            feed = value;
+        } else if (isType(path, typeStart, typeLength, Type.METRIC_TYPE)) {
+            metricType = value;
+        } else if (isType(path, typeStart, typeLength, Type.METRIC)) {
+            metric = value;
+        } else if (isType(path, typeStart, typeLength, Type.RESOURCE_TYPE)) {
+            resourceType = value;
+        } else if (isType(path, typeStart, typeLength, Type.RESOURCE)) {
+            String[] resources = new String[this.resources.length + 1];
+            System.arraycopy(this.resources, 0, resources, 0, this.resources.length);
+            resources[this.resources.length] = value;
+
+            this.resources = resources;
         }
+    }
 
+    private static boolean isType(String path, int typeStart, int typeLength, String type) {
+        return (typeLength == type.length()) && path.regionMatches(typeStart, type, 0, typeLength);
     }
 
-    public static CanonicalPath getByString(String path) {
-        return new CanonicalPath(path);
+    @NonNull
+    public static CanonicalPath getByString(@NonNull String path) {
+        CanonicalPath canonicalPath = paths.get(path);
+
+        if (canonicalPath == null) {
+            canonicalPath = new CanonicalPath(path);
+
+            paths.put(path, canonicalPath);
+        }
+
+        return canonicalPath;
     }
 
     public String getTenant() {
-        if (data.containsKey(Type.TENANT)) {
-            return (String) data.get(Type.TENANT);
-        } else {
-            return null;
-        }
+        return tenant;
     }
 
     public String getFeed() {
-        return (String) data.get(Type.FEED);
+        return feed;
     }
 
     public String getEnvironment() {
-        return (String) data.get(Type.ENVIRONMENT);
+        return environment;
     }
 
     public String getResourceType() {
-        return (String) data.get(Type.RESOURCE_TYPE);
+        return resourceType;
     }
 
     public String getResource() {
-        List<String> resources = (List<String>) data.get(Type.RESOURCE);
-        String resource = "";
-        for (String r : resources) {
-            resource = resource + (resource.isEmpty() ? r : ("/" + r));
+        if (resources.length == 0) {
+            return null;
+        }
+
+        StringBuilder resource = new StringBuilder(resources[0]);
+
+        for (int resourcePosition = 1; resourcePosition < resources.length; resourcePosition++) {
+            resource.append(SEGMENT_SEPARATOR).append(resources[resourcePosition]);
         }
-        return resource;
+
+        return resource.toString();
     }
 
     public String getMetricType() {
-        return (String) data.get(Type.METRIC_TYPE);
+        return metricType;
     }
 
     public String getMetric() {
-        return (String) data.get(Type.METRIC);
+        return metric;
     }
 
     @Override public String toString() {
-        String path = "";
-        path += data.containsKey(Type.TENANT)?"/t;"+data.get(Type.TENANT):"";
-        path += data.containsKey(Type.FEED)?"/f;"+data.get(Type.FEED):"";
-        path += data.containsKey(Type.ENVIRONMENT)?"/e;"+data.get(Type.ENVIRONMENT):"";
-        path += data.containsKey(Type.RESOURCE_TYPE)?"/rt;"+data.get(Type.RESOURCE_TYPE):"";
-        path += data.containsKey(Type.METRIC_TYPE)?"/mt;"+data.get(Type.METRIC_TYPE):"";
-        path += data.containsKey(Type.METRIC)?"/m;"+data.get(Type.METRIC):"";
-        List<String> resources = (List<String>) data.get(Type.RESOURCE);
-        for (String r : resources) {
-            path += "/r;"+data.get(Type.RESOURCE);
-        }
-
         return path;
     }
 
     public String fix(String path) {
+        return Template.of(path).expand(this);
+    }
 
-        path = path.replaceAll("\\{t\\}", (String) data.get(Type.TENANT));
-        path = path.replaceAll("\\{e\\}", (String) data.get(Type.ENVIRONMENT));
-        path = path.replaceAll("\\{f\\}", (String) data.get(Type.FEED));
-        path = path.replaceAll("\\{mt\\}", (String) data.get(Type.METRIC_TYPE));
-        path = path.replaceAll("\\{m\\}", (String) data.get(Type.METRIC));
-        path = path.replaceAll("\\{rt\\}", (String) data.get(Type.RESOURCE_TYPE));
-        List<String> resources = (List<String>) data.get(Type.RESOURCE);
-        if(resources != null) {
-            String resource = "";
-            for (String r : resources) {
-                resource += (resource.isEmpty() ? "r;" + r : ("/r;" + r));
+    /**
+     * Canonical path template.
+     *
+     * Holds a path with {@code {t}}, {@code {e}}, {@code {f}}, {@code {rt}}, {@code {mt}}, {@code {m}}
+     * and {@code {r}} placeholders, split into parts once, so expanding it does not search the path again.
+     */
+    public static final class Template {
+        private static final Map<String, Template> templates = new HashMap<>();
+
+        private final String[] parts;
+        private final String[] placeholders;
+        private final int length;
+
+        private Template(String path) {
+            List<String> parts = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+
+            int partStart = 0;
+            int placeholderStart = path.indexOf('{');
+
+            while (placeholderStart >= 0) {
+                int placeholderEnd = path.indexOf('}', placeholderStart);
+
+                if (placeholderEnd < 0) {
+                    break;
+                }
+
+                parts.add(path.substring(partStart, placeholderStart));
+                placeholders.add(path.substring(placeholderStart + 1, placeholderEnd));
+
+                partStart = placeholderEnd + 1;
+                placeholderStart = path.indexOf('{', partStart);
+            }
+
+            parts.add(path.substring(partStart));
+
+            this.parts = parts.toArray(new String[parts.size()]);
+            this.placeholders = placeholders.toArray(new String[placeholders.size()]);
+            this.length = path.length();
+        }
+
+        @NonNull
+        public static Template of(@NonNull String path) {
+            // Templates are constants, so there are only a few of them.
+            synchronized (templates) {
+                Template template = templates.get(path);
+
+                if (template == null) {
+                    template = new Template(path);
+
+                    templates.put(path, template);
+                }
+
+                return template;
+            }
+        }
+
+        @NonNull
+        public String expand(@NonNull CanonicalPath canonicalPath) {
+            StringBuilder path = new StringBuilder(length + canonicalPath.path.length());
+
+            expand(path, canonicalPath);
+
+            return path.toString();
+        }
+
+        public void expand(@NonNull StringBuilder path, @NonNull CanonicalPath canonicalPath) {
+            path.append(parts[0]);
+
+            for (int placeholderPosition = 0; placeholderPosition < placeholders.length; placeholderPosition++) {
+                appendComponent(path, canonicalPath, placeholders[placeholderPosition]);
+
+                path.append(parts[placeholderPosition + 1]);
+            }
+        }
+
+        private void appendComponent(StringBuilder path, CanonicalPath canonicalPath, String placeholder) {
+            if (Type.RESOURCE.equals(placeholder)) {
+                for (int resourcePosition = 0; resourcePosition < canonicalPath.resources.length; resourcePosition++) {
+                    if (resourcePosition > 0) {
+                        path.append(SEGMENT_SEPARATOR);
+                    }
+
+                    path.append(Type.RESOURCE).append(TYPE_SEPARATOR)
+                            .append(canonicalPath.resources[resourcePosition]);
+                }
+
+                return;
+            }
+
+            path.append(getComponent(canonicalPath, placeholder));
+        }
+
+        private String getComponent(CanonicalPath canonicalPath, String placeholder) {
+            String component = getComponentValue(canonicalPath, placeholder);
+
+            if (component == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Canonical path [%s] does not have [%s] component.", canonicalPath, placeholder));
+            }
+
+            return component;
+        }
+
+        @Nullable
+        private String getComponentValue(CanonicalPath canonicalPath, String placeholder) {
+            switch (placeholder) {
+                case Type.TENANT:
+                    return canonicalPath.tenant;
+
+                case Type.ENVIRONMENT:
+                    return canonicalPath.environment;
+
+                case Type.FEED:
+                    return canonicalPath.feed;
+
+                case Type.METRIC_TYPE:
+                    return canonicalPath.metricType;
+
+                case Type.METRIC:
+                    return canonicalPath.metric;
+
+                case Type.RESOURCE_TYPE:
+                    return canonicalPath.resourceType;
+
+                default:
+                    throw new IllegalArgumentException(String.format("Placeholder [%s] is not known.", placeholder));
             }
-            path = path.replaceAll("\\{r\\}", resource);
         }
-        return path;
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import java.lang.ref.WeakReference;
+
+import android.os.AsyncTask;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.support.v4.app.Fragment;
+
+/**
+ * Chart preparation task.
+ * <p/>
+ * Prepares chart data off the main thread and hands it to a fragment once ready.
+ * The result is dropped if the task was cancelled or the fragment is not attached anymore.
+ */
+public abstract class ChartTask<F extends Fragment, D> extends AsyncTask<Void, Void, D> {
+    private final WeakReference<F> fragment;
+
+    protected ChartTask(@NonNull F fragment) {
+        this.fragment = new WeakReference<>(fragment);
+    }
+
+    public final void start() {
+        executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @WorkerThread
+    protected abstract D prepare();
+
+    @MainThread
+    protected abstract void apply(@NonNull F fragment, D data);
+
+    @Override
+    protected final D doInBackground(Void... parameters) {
+        return prepare();
+    }
+
+    @Override
+    protected final void onPostExecute(D data) {
+        F fragment = this.fragment.get();
+
+        if (isCancelled() || (fragment == null) || !fragment.isAdded()) {
+            return;
+        }
+
+        apply(fragment, data);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+/**
+ * Metric series downsampler.
+ * <p/>
+ * Reduces a series to a count of buckets a chart is able to show using the Largest-Triangle-Three-Buckets
+ * algorithm. Buckets are split into equal groups and a bucket forming the largest triangle
+ * with the previously picked bucket and the average of the next group is picked from each group,
+ * so spikes survive while flat ranges are thinned out. First and last buckets are always kept.
+ * <p/>
+ * Empty buckets take part as zero values, the same way charts show them.
+ * <p/>
+ * Statistics of a picked bucket cover its whole group: the minimum of minimums and the maximum of maximums,
+ * so extremes of buckets left out are still shown. Percentiles of buckets cannot be combined,
+ * the maximum of them is taken instead, so percentiles of downsampled buckets are upper bounds only.
+ */
+public final class Downsampler {
+    private Downsampler() {
+    }
+
+    public static final int MINIMUM = 3;
+
+    @NonNull
+    public static MetricSeries downsample(@NonNull MetricSeries series, @IntRange(from = 0) int count) {
+        if ((count < MINIMUM) || (series.size() <= count)) {
+            return series;
+        }
+
+        MetricSeries.Builder seriesBuilder = new MetricSeries.Builder(count);
+
+        // Timestamps are taken relatively to the first one, doubles lose precision on epoch milliseconds.
+        long startTimestamp = series.getStartTimestamp(0);
+
+        double groupSize = (double) (series.size() - 2) / (count - 2);
+
+        int pickedBucket = 0;
+        seriesBuilder.add(series, pickedBucket);
+
+        for (int group = 0; group < count - 2; group++) {
+            int groupStart = (int) (group * groupSize) + 1;
+            int groupFinish = (int) ((group + 1) * groupSize) + 1;
+
+            int nextGroupStart = groupFinish;
+            int nextGroupFinish = Math.min((int) ((group + 2) * groupSize) + 1, series.size());
+
+            double nextGroupTime = 0;
+            double nextGroupValue = 0;
+
+            for (int bucket = nextGroupStart; bucket < nextGroupFinish; bucket++) {
+                nextGroupTime += series.getStartTimestamp(bucket) - startTimestamp;
+                nextGroupValue += getValue(series, bucket);
+            }
+
+            nextGroupTime /= nextGroupFinish - nextGroupStart;
+            nextGroupValue /= nextGroupFinish - nextGroupStart;
+
+            double pickedTime = series.getStartTimestamp(pickedBucket) - startTimestamp;
+            double pickedValue = getValue(series, pickedBucket);
+
+            double maximumArea = -1;
+            int maximumAreaBucket = groupStart;
+
+            for (int bucket = groupStart; bucket < groupFinish; bucket++) {
+                double bucketTime = series.getStartTimestamp(bucket) - startTimestamp;
+
+                // Doubled triangle area, only compared.
+                double area = Math.abs((pickedTime - nextGroupTime) * (getValue(series, bucket) - pickedValue)
+                        - (pickedTime - bucketTime) * (nextGroupValue - pickedValue));
+
+                if (area > maximumArea) {
+                    maximumArea = area;
+                    maximumAreaBucket = bucket;
+                }
+            }
+
+            pickedBucket = maximumAreaBucket;
+            addGroup(seriesBuilder, series, pickedBucket, groupStart, groupFinish);
+        }
+
+        seriesBuilder.add(series, series.size() - 1);
+
+        return seriesBuilder.build();
+    }
+
+    private static void addGroup(MetricSeries.Builder seriesBuilder, MetricSeries series,
+                                 int pickedBucket, int groupStart, int groupFinish) {
+        double minimum = Double.NaN;
+        double maximum = Double.NaN;
+        double percentile = Double.NaN;
+
+        for (int bucket = groupStart; bucket < groupFinish; bucket++) {
+            if (series.isEmpty(bucket)) {
+                continue;
+            }
+
+            minimum = getMinimum(minimum, series.getMinimum(bucket));
+            maximum = getMaximum(maximum, series.getMaximum(bucket));
+            percentile = getMaximum(percentile, series.getPercentile(bucket));
+        }
+
+        seriesBuilder.add(series.getStartTimestamp(pickedBucket), series.getEndTimestamp(pickedBucket),
+                series.getValue(pickedBucket), minimum, maximum, percentile, series.isEmpty(pickedBucket));
+    }
+
+    private static double getMinimum(double minimum, double value) {
+        // Math.min returns NaN if any of values is NaN, missing statistics should not hide present ones.
+        return (Double.isNaN(minimum) || (value < minimum)) ? value : minimum;
+    }
+
+    private static double getMaximum(double maximum, double value) {
+        return (Double.isNaN(maximum) || (value > maximum)) ? value : maximum;
+    }
+
+    private static double getValue(MetricSeries series, int bucket) {
+        return series.isEmpty(bucket) ? 0 : series.getValue(bucket);
+    }
+}
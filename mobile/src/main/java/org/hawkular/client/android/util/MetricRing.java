@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+/**
+ * Metric buckets ring.
+ * <p/>
+ * Holds a fixed count of the latest metric buckets as parallel primitive arrays,
+ * so memory stays the same no matter how many buckets are added. Buckets are indexed from the oldest one.
+ * The latest bucket is replaced by a bucket with the same start timestamp since it might be unfinished.
+ */
+public final class MetricRing {
+    private final long[] startTimestamps;
+    private final long[] endTimestamps;
+    private final double[] values;
+    private final boolean[] empties;
+
+    private int head;
+    private int size;
+
+    public MetricRing(@IntRange(from = 1) int capacity) {
+        this.startTimestamps = new long[capacity];
+        this.endTimestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.empties = new boolean[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return startTimestamps.length;
+    }
+
+    public long getStartTimestamp(@IntRange(from = 0) int bucket) {
+        return startTimestamps[getPosition(bucket)];
+    }
+
+    public long getEndTimestamp(@IntRange(from = 0) int bucket) {
+        return endTimestamps[getPosition(bucket)];
+    }
+
+    public double getValue(@IntRange(from = 0) int bucket) {
+        return values[getPosition(bucket)];
+    }
+
+    public boolean isEmpty(@IntRange(from = 0) int bucket) {
+        return empties[getPosition(bucket)];
+    }
+
+    public void add(@NonNull MetricSeries series) {
+        for (int bucket = 0; bucket < series.size(); bucket++) {
+            add(series.getStartTimestamp(bucket), series.getEndTimestamp(bucket),
+                    series.getValue(bucket), series.isEmpty(bucket));
+        }
+    }
+
+    public void add(long startTimestamp, long endTimestamp, double value, boolean empty) {
+        int position;
+
+        if ((size > 0) && (startTimestamp < getStartTimestamp(size - 1))) {
+            return;
+        }
+
+        if ((size > 0) && (startTimestamp == getStartTimestamp(size - 1))) {
+            position = getPosition(size - 1);
+        } else if (size < capacity()) {
+            position = getPosition(size);
+            size++;
+        } else {
+            position = head;
+            head = (head + 1) % capacity();
+        }
+
+        startTimestamps[position] = startTimestamp;
+        endTimestamps[position] = endTimestamp;
+        values[position] = value;
+        empties[position] = empty;
+    }
+
+    private int getPosition(int bucket) {
+        return (head + bucket) % capacity();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import org.hawkular.client.android.backend.model.MetricSeries;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+/**
+ * Counter rate utilities.
+ * <p/>
+ * Transforms cumulative counter buckets to rates per a time unit in a single pass.
+ * A rate of a bucket is the counter increase since the previous non-empty bucket,
+ * so empty buckets stay empty and the next rate spreads over them.
+ * A counter going down is treated as reset, the whole new value is taken as the increase then.
+ * The first non-empty bucket has nothing to compare with and becomes empty.
+ */
+public final class Rates {
+    private Rates() {
+    }
+
+    @NonNull
+    public static MetricSeries getRates(@NonNull MetricSeries series, @IntRange(from = 1) long unit) {
+        MetricSeries.Builder ratesBuilder = new MetricSeries.Builder(series.size());
+
+        int previousBucket = -1;
+
+        for (int bucket = 0; bucket < series.size(); bucket++) {
+            long startTimestamp = series.getStartTimestamp(bucket);
+            long endTimestamp = series.getEndTimestamp(bucket);
+
+            if (series.isEmpty(bucket) || Double.isNaN(series.getValue(bucket))) {
+                ratesBuilder.add(startTimestamp, endTimestamp, Double.NaN, true);
+                continue;
+            }
+
+            if (previousBucket < 0) {
+                ratesBuilder.add(startTimestamp, endTimestamp, Double.NaN, true);
+            } else {
+                double increase = series.getValue(bucket) - series.getValue(previousBucket);
+
+                if (increase < 0) {
+                    increase = series.getValue(bucket);
+                }
+
+                long duration = startTimestamp - series.getStartTimestamp(previousBucket);
+
+                ratesBuilder.add(startTimestamp, endTimestamp, increase * unit / duration, false);
+            }
+
+            previousBucket = bucket;
+        }
+
+        return ratesBuilder.build();
+    }
+}
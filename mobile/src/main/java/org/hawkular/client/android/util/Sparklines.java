@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.client.android.backend.model.Metric;
+import org.hawkular.client.android.backend.model.MetricSeries;
+import org.hawkular.client.android.backend.model.Persona;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+/**
+ * Metric sparklines cache.
+ * <p/>
+ * Keeps small downsampled series of recent metric data, shared between all screens showing sparklines.
+ * Points are normalized to the [0, 1] range, so views draw them without any further computation.
+ * Points without data are stored as {@link Float#NaN}.
+ * <p/>
+ * Metrics with the same ids differ between personas, so sparklines are kept per persona.
+ * Sparklines of a different backend are removed using {@link #clear()}.
+ */
+public final class Sparklines {
+    private Sparklines() {
+    }
+
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final int SIZE = 128;
+
+        public static final long FRESHNESS = TimeUnit.MINUTES.toMillis(1);
+    }
+
+    public static final int POINTS = 30;
+
+    public static final long DURATION = TimeUnit.HOURS.toMillis(1);
+
+    private static final class Sparkline {
+        private final float[] points;
+        private final long time;
+
+        Sparkline(float[] points, long time) {
+            this.points = points;
+            this.time = time;
+        }
+    }
+
+    private static final LruCache<String, Sparkline> sparklines = new LruCache<>(Defaults.SIZE);
+
+    @Nullable
+    public static float[] getPoints(@NonNull Persona persona, @NonNull Metric metric) {
+        Sparkline sparkline = sparklines.get(getKey(persona, metric));
+
+        if (sparkline == null) {
+            return null;
+        }
+
+        return sparkline.points;
+    }
+
+    public static boolean isFresh(@NonNull Persona persona, @NonNull Metric metric) {
+        Sparkline sparkline = sparklines.get(getKey(persona, metric));
+
+        return (sparkline != null) && (System.currentTimeMillis() - sparkline.time < Defaults.FRESHNESS);
+    }
+
+    public static void setSeries(@NonNull Persona persona, @NonNull Metric metric, @NonNull MetricSeries series) {
+        sparklines.put(getKey(persona, metric), new Sparkline(getPoints(series, POINTS), System.currentTimeMillis()));
+    }
+
+    public static void clear() {
+        sparklines.evictAll();
+    }
+
+    private static String getKey(Persona persona, Metric metric) {
+        return String.format("%s %s", persona.getId(), metric.getId());
+    }
+
+    @NonNull
+    static float[] getPoints(@NonNull MetricSeries series, @IntRange(from = 1) int pointsCount) {
+        float[] points = new float[pointsCount];
+
+        double[] pointSums = new double[pointsCount];
+        int[] pointSizes = new int[pointsCount];
+
+        // Buckets are averaged into points proportionally, series shorter than points leave gaps.
+        for (int bucket = 0; bucket < series.size(); bucket++) {
+            if (series.isEmpty(bucket) || Double.isNaN(series.getValue(bucket))) {
+                continue;
+            }
+
+            int point = (int) ((long) bucket * pointsCount / series.size());
+
+            pointSums[point] += series.getValue(bucket);
+            pointSizes[point]++;
+        }
+
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+
+        for (int point = 0; point < pointsCount; point++) {
+            if (pointSizes[point] == 0) {
+                continue;
+            }
+
+            pointSums[point] /= pointSizes[point];
+
+            minimum = Math.min(minimum, pointSums[point]);
+            maximum = Math.max(maximum, pointSums[point]);
+        }
+
+        for (int point = 0; point < pointsCount; point++) {
+            if (pointSizes[point] == 0) {
+                points[point] = Float.NaN;
+            } else if (maximum == minimum) {
+                points[point] = 0.5f;
+            } else {
+                points[point] = (float) ((pointSums[point] - minimum) / (maximum - minimum));
+            }
+        }
+
+        return points;
+    }
+}
@@ -27,6 +27,8 @@ import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 
+import org.hawkular.client.android.backend.BackendHttp;
+
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.ws.WebSocketCall;
@@ -163,13 +165,13 @@ public class WebSocketClientGenerator {
     /** the configuration for our httpclient generator */
     private final Configuration configuration;
 
-    /** The configured client singleton */
+    /** The configured client, sharing the connection pool with the backend client */
     private final OkHttpClient httpClient;
 
     public WebSocketClientGenerator(Configuration configuration) {
         this.configuration = configuration;
 
-        OkHttpClient httpClient = new OkHttpClient();
+        OkHttpClient httpClient = BackendHttp.getClient().clone();
 
         if(configuration.getConnectTimeoutSeconds()!=-1){
             httpClient.setConnectTimeout(configuration.getConnectTimeoutSeconds(), TimeUnit.SECONDS);
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.client.android.view;
+
+import org.hawkular.client.android.R;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * Sparkline view.
+ * <p/>
+ * Draws a single line of normalized points, see {@link org.hawkular.client.android.util.Sparklines}.
+ * The line path is built once per points or size change, drawing does not allocate anything.
+ */
+public final class SparklineView extends View {
+    private static final class Defaults {
+        private Defaults() {
+        }
+
+        public static final float LINE_WIDTH = 1.5f;
+    }
+
+    private final Paint linePaint;
+    private final Path linePath;
+
+    private float[] points;
+
+    public SparklineView(Context context) {
+        this(context, null);
+    }
+
+    public SparklineView(Context context, AttributeSet attributes) {
+        this(context, attributes, 0);
+    }
+
+    public SparklineView(Context context, AttributeSet attributes, int style) {
+        super(context, attributes, style);
+
+        linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeWidth(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, Defaults.LINE_WIDTH,
+                getResources().getDisplayMetrics()));
+        linePaint.setColor(getResources().getColor(R.color.background_primary));
+
+        linePath = new Path();
+    }
+
+    public void setPoints(@Nullable float[] points) {
+        this.points = points;
+
+        setUpLinePath();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        setUpLinePath();
+    }
+
+    private void setUpLinePath() {
+        linePath.reset();
+
+        if ((points == null) || (points.length < 2)) {
+            return;
+        }
+
+        float lineInset = linePaint.getStrokeWidth() / 2;
+
+        float left = getPaddingLeft() + lineInset;
+        float top = getPaddingTop() + lineInset;
+        float width = getWidth() - getPaddingRight() - lineInset - left;
+        float height = getHeight() - getPaddingBottom() - lineInset - top;
+
+        float pointStep = width / (points.length - 1);
+
+        boolean lineGap = true;
+
+        for (int point = 0; point < points.length; point++) {
+            if (Float.isNaN(points[point])) {
+                lineGap = true;
+                continue;
+            }
+
+            float x = left + point * pointStep;
+            float y = top + (1 - points[point]) * height;
+
+            if (lineGap) {
+                linePath.moveTo(x, y);
+            } else {
+                linePath.lineTo(x, y);
+            }
+
+            lineGap = false;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        canvas.drawPath(linePath, linePaint);
+    }
+}